@@ -0,0 +1,37 @@
+package com.studyGroup.backend.config;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.security.Principal;
+import java.util.Collection;
+
+/**
+ * Security principal that also carries the user's id, so services can tell who is calling
+ * without looking the user up by email again.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Integer id;
+
+    public AuthenticatedUser(Integer id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Id of the user behind a request or STOMP session principal, or null when it isn't one of ours.
+     */
+    public static Integer idOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.studyGroup.backend.config;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks an id as taken from a block of {@link com.studyGroup.backend.service.IdBlockAllocator}
+ * (see {@link BlockIdGenerator}); {@code value} is the block name, usually the table name.
+ */
+@IdGeneratorType(BlockIdGenerator.class)
+@Retention(RUNTIME)
+@Target({ FIELD, METHOD })
+public @interface BlockId {
+
+    String value();
+}
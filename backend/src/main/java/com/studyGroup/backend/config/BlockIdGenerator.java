@@ -0,0 +1,35 @@
+package com.studyGroup.backend.config;
+
+import com.studyGroup.backend.service.IdBlockAllocator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Hibernate id generator backed by {@link IdBlockAllocator}. Use through {@link BlockId}:
+ * {@code @Id @BlockId("<table>")}.
+ */
+public class BlockIdGenerator implements IdentifierGenerator {
+
+    private final String block;
+    private final boolean intId;
+
+    public BlockIdGenerator(BlockId config, Member member, CustomIdGeneratorCreationContext context) {
+        block = config.value();
+        if (block == null || block.isBlank()) {
+            throw new IllegalArgumentException("@BlockId requires a block name");
+        }
+        Class<?> type = member instanceof Field field ? field.getType() : ((Method) member).getReturnType();
+        intId = type == Integer.class;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        long id = IdBlockAllocator.getInstance().nextId(block);
+        return intId ? (Object) Math.toIntExact(id) : (Object) id;
+    }
+}
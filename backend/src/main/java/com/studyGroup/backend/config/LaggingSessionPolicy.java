@@ -0,0 +1,14 @@
+package com.studyGroup.backend.config;
+
+/**
+ * What to do with broadcasts for a WebSocket session that can't keep up
+ * (its send buffer is full, or a send has been stuck past the time limit).
+ */
+public enum LaggingSessionPolicy {
+    // Skip new broadcasts until it catches up; the client sees the jump in seq and fetches the range
+    DROP,
+    // Replace everything queued for a subscription with one RESYNC_REQUIRED frame
+    COALESCE,
+    // Close the session with status 4000 "RESYNC_REQUIRED"; the client reconnects and resyncs
+    DISCONNECT
+}
@@ -0,0 +1,44 @@
+package com.studyGroup.backend.config;
+
+import org.springframework.util.MimeType;
+
+/**
+ * Encodings a STOMP client can ask for with the {@code payload-format} CONNECT header.
+ * Binary formats are delivered on their own copy of each destination ({@code <destination>.cbor}),
+ * so a broadcast is encoded once per format, not once per subscriber.
+ */
+public enum PayloadFormat {
+    JSON(null, MimeType.valueOf("application/json")),
+    CBOR("cbor", MimeType.valueOf("application/cbor")),
+    SMILE("smile", MimeType.valueOf("application/x-jackson-smile"));
+
+    private final String suffix;
+    private final MimeType contentType;
+
+    PayloadFormat(String suffix, MimeType contentType) {
+        this.suffix = suffix;
+        this.contentType = contentType;
+    }
+
+    public MimeType getContentType() {
+        return contentType;
+    }
+
+    public String destination(String destination) {
+        return suffix == null ? destination : destination + "." + suffix;
+    }
+
+    /**
+     * Parses a header value; anything unknown or missing means JSON.
+     */
+    public static PayloadFormat fromHeader(String value) {
+        if (value != null) {
+            for (PayloadFormat format : values()) {
+                if (format.name().equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+}
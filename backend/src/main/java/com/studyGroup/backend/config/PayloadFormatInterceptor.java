@@ -0,0 +1,107 @@
+package com.studyGroup.backend.config;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the payload format a client picked at CONNECT: its SUBSCRIBE frames to /topic and /queue
+ * are pointed at the format's copy of the destination. Binary frames can't travel over SockJS, so
+ * binary formats are only honoured on the plain WebSocket endpoint; everyone else gets JSON.
+ */
+@Component
+public class PayloadFormatInterceptor implements ChannelInterceptor {
+
+    public static final String FORMAT_HEADER = "payload-format";
+    private static final String BINARY_CAPABLE_ATTRIBUTE = "binaryCapable";
+
+    private final Map<String, PayloadFormat> sessionFormats = new ConcurrentHashMap<>();
+    private final Map<PayloadFormat, Integer> sessionCounts = new EnumMap<>(PayloadFormat.class);
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null || accessor.getSessionId() == null) {
+            return message;
+        }
+
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> {
+                PayloadFormat format = PayloadFormat.fromHeader(accessor.getFirstNativeHeader(FORMAT_HEADER));
+                Map<String, Object> attributes = accessor.getSessionAttributes();
+                if (format != PayloadFormat.JSON
+                        && (attributes == null || !Boolean.TRUE.equals(attributes.get(BINARY_CAPABLE_ATTRIBUTE)))) {
+                    format = PayloadFormat.JSON;
+                }
+                if (format != PayloadFormat.JSON && sessionFormats.putIfAbsent(accessor.getSessionId(), format) == null) {
+                    changeCount(format, 1);
+                }
+            }
+            case SUBSCRIBE -> {
+                PayloadFormat format = sessionFormats.get(accessor.getSessionId());
+                String destination = accessor.getDestination();
+                if (format != null && destination != null
+                        && (destination.startsWith("/topic/") || destination.startsWith("/queue/"))) {
+                    accessor.setDestination(format.destination(destination));
+                }
+            }
+            case DISCONNECT -> {
+                // Arrives twice for a clean disconnect (client frame, then session end); only the first counts
+                PayloadFormat format = sessionFormats.remove(accessor.getSessionId());
+                if (format != null) {
+                    changeCount(format, -1);
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Whether any session connected to this node currently reads {@code format}.
+     */
+    public boolean hasSessions(PayloadFormat format) {
+        if (format == PayloadFormat.JSON) {
+            return true;
+        }
+        synchronized (sessionCounts) {
+            return sessionCounts.getOrDefault(format, 0) > 0;
+        }
+    }
+
+    private void changeCount(PayloadFormat format, int delta) {
+        synchronized (sessionCounts) {
+            sessionCounts.merge(format, delta, Integer::sum);
+        }
+    }
+
+    /**
+     * Marks sessions opened on the plain WebSocket endpoint, where binary frames are possible.
+     */
+    public static class BinaryCapableMarker implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            attributes.put(BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+    }
+}
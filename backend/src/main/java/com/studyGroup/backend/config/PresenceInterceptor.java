@@ -0,0 +1,88 @@
+package com.studyGroup.backend.config;
+
+import com.studyGroup.backend.repository.UsersRepository;
+import com.studyGroup.backend.service.JWTService;
+import com.studyGroup.backend.service.PresenceRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Feeds {@link PresenceRegistry} from inbound STOMP frames: CONNECT, SUBSCRIBE/UNSUBSCRIBE on a
+ * group topic and DISCONNECT. Every other frame, heart-beats included, keeps the session's presence
+ * alive. The user is taken from the JWT in the CONNECT {@code Authorization: Bearer} header, as
+ * {@link JwtAuthFilter} does for HTTP, and becomes the session's principal; sessions without a
+ * valid token have no user.
+ */
+@Component
+public class PresenceInterceptor implements ChannelInterceptor {
+
+    // The group's chat topic itself, not /presence or other sub-topics
+    private static final Pattern GROUP_TOPIC = Pattern.compile("^/topic/group/(\\d+)$");
+
+    private final PresenceRegistry presenceRegistry;
+    private final JWTService jwtService;
+    private final UsersRepository usersRepository;
+
+    public PresenceInterceptor(PresenceRegistry presenceRegistry, JWTService jwtService, UsersRepository usersRepository) {
+        this.presenceRegistry = presenceRegistry;
+        this.jwtService = jwtService;
+        this.usersRepository = usersRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            presenceRegistry.touch(sessionId);
+            return message;
+        }
+
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> {
+                AuthenticatedUser user = authenticate(accessor.getFirstNativeHeader("Authorization"));
+                if (user != null) {
+                    accessor.setUser(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+                }
+                presenceRegistry.connected(sessionId, user == null ? null : user.getId());
+            }
+            case SUBSCRIBE -> {
+                String destination = accessor.getDestination();
+                Matcher matcher = destination == null ? null : GROUP_TOPIC.matcher(destination);
+                if (matcher != null && matcher.matches()) {
+                    presenceRegistry.subscribed(sessionId, accessor.getSubscriptionId(), Long.valueOf(matcher.group(1)));
+                }
+            }
+            case UNSUBSCRIBE -> presenceRegistry.unsubscribed(sessionId, accessor.getSubscriptionId());
+            case DISCONNECT -> presenceRegistry.disconnected(sessionId);
+            default -> presenceRegistry.touch(sessionId);
+        }
+        return message;
+    }
+
+    private AuthenticatedUser authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        String email = jwtService.validateToken(authHeader.substring(7));
+        if ("401".equals(email)) {
+            return null;
+        }
+        return usersRepository.findByEmail(email)
+                .map(user -> new AuthenticatedUser(user.getId(), user.getEmail(), "", Collections.emptyList()))
+                .orElse(null);
+    }
+}
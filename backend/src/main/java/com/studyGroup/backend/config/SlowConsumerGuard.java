@@ -0,0 +1,266 @@
+package com.studyGroup.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gives each WebSocket session its own bounded outbound queue, drained on a virtual thread, so a
+ * slow client only ever holds up itself. When a session's queue goes over the byte limit, or a send
+ * has been stuck longer than the time limit, the {@link LaggingSessionPolicy} is applied to its
+ * broadcasts (STOMP MESSAGE frames); protocol frames (CONNECTED, RECEIPT, ERROR, heart-beats) are
+ * always kept. Whatever the policy, a session whose queue still passes the hard limits
+ * ({@code chat.transport.max-queued-bytes} or {@code chat.transport.max-queued-messages}) is closed
+ * with RESYNC_REQUIRED, so one stuck client can't hold unbounded memory.
+ * <p>
+ * Every time the policy fires it is counted in {@code chat.ws.lagging.session} (tagged with the
+ * session, removed when it closes) and {@code chat.ws.lagging.destination}.
+ */
+public class SlowConsumerGuard extends WebSocketHandlerDecorator {
+
+    public static final CloseStatus RESYNC_REQUIRED = new CloseStatus(4000, "RESYNC_REQUIRED");
+    private static final String RESYNC_BODY = "{\"messageType\":\"RESYNC_REQUIRED\"}";
+
+    private static final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LaggingSessionPolicy policy;
+    private final long sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final long maxQueuedBytes;
+    private final int maxQueuedMessages;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> sessionCounters = new ConcurrentHashMap<>();
+
+    public SlowConsumerGuard(WebSocketHandler delegate, LaggingSessionPolicy policy, long sendTimeLimitMs,
+                             int bufferSizeLimit, long maxQueuedBytes, int maxQueuedMessages, MeterRegistry meterRegistry) {
+        super(delegate);
+        this.policy = policy;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        super.afterConnectionEstablished(new GuardedSession(session));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        Counter counter = sessionCounters.remove(session.getId());
+        if (counter != null) {
+            System.out.println("[SlowConsumer] Session " + session.getId() + " lagged " + (long) counter.count()
+                    + " time(s) before closing (" + policy + ")");
+            meterRegistry.remove(counter);
+        }
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    private void record(String sessionId, String destination) {
+        sessionCounters.computeIfAbsent(sessionId, id -> Counter.builder("chat.ws.lagging.session")
+                .tag("session", id)
+                .tag("policy", policy.name())
+                .register(meterRegistry)).increment();
+        Counter.builder("chat.ws.lagging.destination")
+                .tag("destination", destination == null ? "none" : destination)
+                .tag("policy", policy.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private final class GuardedSession extends WebSocketSessionDecorator {
+
+        private final Deque<Outbound> queue = new ArrayDeque<>();
+        private long queuedBytes;
+        private boolean draining;
+        // When the send in progress started, 0 when idle
+        private volatile long sendStartedAt;
+        private volatile boolean closing;
+
+        GuardedSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (closing) {
+                return;
+            }
+            Outbound outbound = Outbound.of(message);
+            boolean disconnect = false;
+            synchronized (queue) {
+                if (outbound.broadcast && isLagging()) {
+                    record(getId(), outbound.destination);
+                    switch (policy) {
+                        case DROP -> {
+                            return;
+                        }
+                        case COALESCE -> coalesce(outbound);
+                        case DISCONNECT -> disconnect = true;
+                    }
+                } else {
+                    enqueue(outbound);
+                }
+                if (queuedBytes > maxQueuedBytes || queue.size() > maxQueuedMessages) {
+                    System.out.println("[SlowConsumer] Session " + getId() + " has " + queue.size() + " frame(s), "
+                            + queuedBytes + " byte(s) queued; closing");
+                    queue.clear();
+                    queuedBytes = 0;
+                    disconnect = true;
+                }
+                if (!disconnect && !draining) {
+                    draining = true;
+                    senders.execute(this::drain);
+                }
+            }
+            if (disconnect) {
+                closing = true;
+                try {
+                    getDelegate().close(RESYNC_REQUIRED);
+                } catch (IOException e) {
+                    // Already broken; the close callback cleans up either way
+                }
+            }
+        }
+
+        private boolean isLagging() {
+            long started = sendStartedAt;
+            return queuedBytes > bufferSizeLimit
+                    || (started > 0 && System.currentTimeMillis() - started > sendTimeLimitMs);
+        }
+
+        // Drops every queued broadcast and leaves one resync hint per subscription, counting hints
+        // already queued by earlier passes, so a lagging session's queue stops growing
+        private void coalesce(Outbound latest) {
+            Set<String> hinted = new HashSet<>();
+            for (Outbound queued : queue) {
+                if (queued.hint) {
+                    hinted.add(queued.subscription);
+                }
+            }
+            List<Outbound> hints = new ArrayList<>();
+            Iterator<Outbound> it = queue.iterator();
+            while (it.hasNext()) {
+                Outbound queued = it.next();
+                if (queued.broadcast) {
+                    it.remove();
+                    queuedBytes -= queued.size;
+                    if (queued.subscription != null && hinted.add(queued.subscription)) {
+                        hints.add(Outbound.resyncHint(queued));
+                    }
+                }
+            }
+            if (latest.subscription != null && hinted.add(latest.subscription)) {
+                hints.add(Outbound.resyncHint(latest));
+            }
+            hints.forEach(this::enqueue);
+        }
+
+        private void enqueue(Outbound outbound) {
+            queue.addLast(outbound);
+            queuedBytes += outbound.size;
+        }
+
+        private void drain() {
+            while (true) {
+                Outbound next;
+                synchronized (queue) {
+                    next = queue.pollFirst();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                    queuedBytes -= next.size;
+                }
+                sendStartedAt = System.currentTimeMillis();
+                try {
+                    getDelegate().sendMessage(next.message);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (queue) {
+                        queue.clear();
+                        queuedBytes = 0;
+                        draining = false;
+                    }
+                    return;
+                } finally {
+                    sendStartedAt = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * An outbound frame with the STOMP headers the policy needs, read from the frame's header block.
+     */
+    private record Outbound(WebSocketMessage<?> message, int size, boolean broadcast, boolean hint,
+                            String destination, String subscription) {
+
+        static Outbound of(WebSocketMessage<?> message) {
+            String head = headerBlock(message);
+            boolean broadcast = head.startsWith("MESSAGE\n");
+            String destination = null;
+            String subscription = null;
+            if (broadcast) {
+                for (String line : head.split("\n")) {
+                    if (line.startsWith("destination:")) {
+                        destination = line.substring("destination:".length());
+                    } else if (line.startsWith("subscription:")) {
+                        subscription = line.substring("subscription:".length());
+                    }
+                }
+            }
+            return new Outbound(message, message.getPayloadLength(), broadcast, false, destination, subscription);
+        }
+
+        static Outbound resyncHint(Outbound original) {
+            String frame = "MESSAGE\ndestination:" + original.destination + "\nsubscription:" + original.subscription
+                    + "\nmessage-id:resync-" + System.nanoTime() + "\ncontent-type:application/json\n\n" + RESYNC_BODY + "\0";
+            TextMessage message = new TextMessage(frame);
+            return new Outbound(message, message.getPayloadLength(), false, true, original.destination, original.subscription);
+        }
+
+        // Command and headers, up to the blank line; the body is never decoded
+        private static String headerBlock(WebSocketMessage<?> message) {
+            String head;
+            if (message instanceof TextMessage text) {
+                String payload = text.getPayload();
+                int end = payload.indexOf("\n\n");
+                head = end < 0 ? payload : payload.substring(0, end);
+            } else if (message instanceof BinaryMessage binary) {
+                ByteBuffer payload = binary.getPayload().duplicate();
+                byte[] bytes = new byte[Math.min(payload.remaining(), 1024)];
+                payload.get(bytes);
+                String prefix = new String(bytes, StandardCharsets.UTF_8);
+                int end = prefix.indexOf("\n\n");
+                head = end < 0 ? prefix : prefix.substring(0, end);
+            } else {
+                head = "";
+            }
+            return head.replace("\r", "");
+        }
+    }
+}
@@ -1,26 +1,140 @@
 package com.studyGroup.backend.config;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String BROKER_MODE_RELAY = "relay";
+
+    // "simple": in-process broker, single node only.
+    // "relay": /topic/group/* and /queue/notifications/* go through an external STOMP broker
+    // (RabbitMQ, ActiveMQ Artemis, ...) so every backend instance sees every broadcast.
+    // Still per node in relay mode: presence (each node only sees its own sessions), the unread
+    // notification cache (short TTL there) and the chat dedup window (a resend that reaches another
+    // node isn't recognised).
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${chat.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Outbound: how long one send may take and how many bytes may queue per session before
+    // chat.transport.lagging-policy applies. Inbound: largest STOMP message accepted.
+    @Value("${chat.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${chat.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${chat.transport.message-size-limit:131072}")
+    private int messageSizeLimit;
+
+    @Value("${chat.transport.lagging-policy:coalesce}")
+    private String laggingPolicy;
+
+    // Hard per-session queue limits: past either one the session is closed whatever the policy
+    @Value("${chat.transport.max-queued-bytes:2097152}")
+    private long maxQueuedBytes;
+
+    @Value("${chat.transport.max-queued-messages:1000}")
+    private int maxQueuedMessages;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PayloadFormatInterceptor payloadFormatInterceptor;
+
+    @Autowired
+    private PresenceInterceptor presenceInterceptor;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        // Plain WebSocket (no SockJS fallback), needed for binary payload formats
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(new PayloadFormatInterceptor.BinaryCapableMarker());
+        // Hand each session's frames to the controllers in the order they were received
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        LaggingSessionPolicy policy = LaggingSessionPolicy.valueOf(laggingPolicy.trim().toUpperCase());
+        registration.setMessageSizeLimit(messageSizeLimit)
+                // Spring's own per-session limits stay as a backstop; SlowConsumerGuard hands
+                // frames off without blocking, so normally only its limits are reached
+                .setSendTimeLimit(sendTimeLimitMs * 2)
+                .setSendBufferSizeLimit(sendBufferSizeLimit * 2)
+                .addDecoratorFactory(handler -> new SlowConsumerGuard(handler, policy, sendTimeLimitMs,
+                        sendBufferSizeLimit, maxQueuedBytes, maxQueuedMessages, meterRegistry));
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Presence first: it reads SUBSCRIBE destinations before the payload format rewrites them
+        registration.interceptors(presenceInterceptor, payloadFormatInterceptor);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic", "/queue");
+        if (BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode);
+            if (StringUtils.hasText(relayVirtualHost)) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            // Heart-beats let presence tell live idle sessions from dead ones
+            ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(1);
+            heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+            heartbeatScheduler.initialize();
+            registry.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] { 10000, 10000 })
+                    .setTaskScheduler(heartbeatScheduler);
+        }
         registry.setApplicationDestinationPrefixes("/app");
     }
 }
@@ -1,14 +1,19 @@
 package com.studyGroup.backend.controller;
 
+import com.studyGroup.backend.dto.ChatHistoryPageDTO;
 import com.studyGroup.backend.dto.ChatMessageDTO;
-import com.studyGroup.backend.model.GroupMessage;
+import com.studyGroup.backend.dto.ChatResyncDTO;
+import com.studyGroup.backend.dto.ChatSearchPageDTO;
+import com.studyGroup.backend.dto.PresenceChangeDTO;
+import com.studyGroup.backend.model.User;
 import com.studyGroup.backend.service.GroupMessageService;
+import com.studyGroup.backend.service.GroupService;
+import com.studyGroup.backend.service.PresenceRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/groups")
@@ -17,44 +22,105 @@ import java.util.stream.Collectors;
 public class GroupChatController {
 
     private final GroupMessageService groupMessageService;
-    private final com.studyGroup.backend.repository.MessageReplyRepository messageReplyRepository;
     private final com.studyGroup.backend.service.JWTService jwtService;
     private final com.studyGroup.backend.service.UserService userService;
-    private final com.studyGroup.backend.repository.PollOptionRepository pollOptionRepository;
+    private final GroupService groupService;
+    private final PresenceRegistry presenceRegistry;
 
     @GetMapping("/{groupId}/messages")
     public ResponseEntity<List<ChatMessageDTO>> getGroupMessages(@PathVariable Long groupId) {
-        List<GroupMessage> messages = groupMessageService.getGroupMessages(groupId);
-        
-        List<ChatMessageDTO> messageDTOs = messages.stream().map(message -> {
-            ChatMessageDTO dto = new ChatMessageDTO();
-            dto.setGroupId(message.getGroup().getGroupId());
-            dto.setMessageId(message.getId());
-            dto.setSenderId(message.getSender().getId());
-            dto.setSenderName(message.getSender().getName());
-            dto.setContent(message.getContent());
-            dto.setTimestamp(message.getTimestamp());
-            dto.setMessageType(message.getMessageType());
+        List<ChatMessageDTO> messageDTOs = groupMessageService.getAllMessages(groupId);
 
-            messageReplyRepository.findByReplyMessage_Id(message.getId()).ifPresent(mr -> {
-                dto.setReplyToMessageId(mr.getOriginalMessage().getId());
-                dto.setReplyToContent(mr.getOriginalMessage().getContent());
-                dto.setReplyToSenderName(mr.getOriginalMessage().getSender().getName());
-            });
+        return ResponseEntity.ok(messageDTOs);
+    }
 
-            if ("POLL".equalsIgnoreCase(message.getMessageType()) && message.getPollId() != null) {
-                dto.setPollId(message.getPollId());
-                dto.setPollOptions(pollOptionRepository.findByPoll_IdOrderById(message.getPollId())
-                        .stream()
-                        .map(o -> new com.studyGroup.backend.dto.PollOptionDTO(o.getId(), o.getOptionText(), o.getVoteCount()))
-                        .collect(Collectors.toList())
-                );
-            }
+    /**
+     * Cursor-based history. First load: no cursor, returns the newest page.
+     * Scrolling up: {@code ?before=<oldestSeq>}. Catching up: {@code ?after=<newestSeq>}.
+     */
+    @GetMapping("/{groupId}/messages/history")
+    public ResponseEntity<?> getGroupMessageHistory(@PathVariable Long groupId,
+                                                    @RequestParam(required = false) Long before,
+                                                    @RequestParam(required = false) Long after,
+                                                    @RequestParam(required = false) Integer limit) {
+        try {
+            ChatHistoryPageDTO page = groupMessageService.getMessagePage(groupId, before, after, limit);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
 
-            return dto;
-        }).collect(Collectors.toList());
-            
-        return ResponseEntity.ok(messageDTOs);
+    /**
+     * Fills a gap in the live feed: the messages numbered {@code fromSeq..toSeq}.
+     */
+    @GetMapping("/{groupId}/messages/range")
+    public ResponseEntity<?> getGroupMessagesBySeq(@PathVariable Long groupId,
+                                                   @RequestParam Long fromSeq,
+                                                   @RequestParam Long toSeq) {
+        try {
+            List<ChatMessageDTO> messages = groupMessageService.getMessagesBySeq(groupId, fromSeq, toSeq);
+            return ResponseEntity.ok(messages);
+        } catch (RuntimeException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    /**
+     * REST mirror of the /app/chat.resync STOMP frame, for a single group; {@code since} is the last seen seq
+     * and {@code changesSince} the changeCursor of the previous resync.
+     */
+    @GetMapping("/{groupId}/messages/resync")
+    public ResponseEntity<?> resyncGroupMessages(@PathVariable Long groupId,
+                                                 @RequestParam Long since,
+                                                 @RequestParam(required = false) Long changesSince,
+                                                 @RequestParam(required = false) Integer limit) {
+        try {
+            ChatResyncDTO delta = groupMessageService.resync(groupId, since, changesSince, limit);
+            return ResponseEntity.ok(delta);
+        } catch (RuntimeException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    /**
+     * Ranked search over a group's messages and document names. Members only.
+     */
+    @GetMapping("/{groupId}/messages/search")
+    public ResponseEntity<?> searchGroupMessages(@PathVariable Long groupId,
+                                                 @RequestParam("q") String query,
+                                                 @RequestParam(required = false) Integer page,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestHeader("Authorization") String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.status(401).body("Missing or invalid Authorization header");
+        }
+        String token = authHeader.substring(7);
+        String email = jwtService.validateToken(token);
+        if ("401".equals(email)) {
+            return ResponseEntity.status(401).body("Invalid/expired token");
+        }
+        var userOpt = userService.getUserByEmail(email);
+        if (userOpt.isEmpty()) return ResponseEntity.status(404).body("User not found");
+        User user = userOpt.get();
+        if ("non-member".equals(groupService.getUserRoleInGroup(groupId, user))) {
+            return ResponseEntity.status(403).body("You are not a member of this group");
+        }
+
+        try {
+            ChatSearchPageDTO results = groupMessageService.searchMessages(groupId, query, page, size);
+            return ResponseEntity.ok(results);
+        } catch (RuntimeException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    /**
+     * Everyone currently online or typing in the group; later changes arrive on /topic/group/{groupId}/presence.
+     */
+    @GetMapping("/{groupId}/presence")
+    public ResponseEntity<List<PresenceChangeDTO>> getGroupPresence(@PathVariable Long groupId) {
+        return ResponseEntity.ok(presenceRegistry.snapshot(groupId));
     }
 
     @DeleteMapping("/{groupId}/messages/{messageId}")
@@ -73,7 +139,7 @@ public class GroupChatController {
         Integer requesterId = userOpt.get().getId();
 
         try {
-            groupMessageService.deleteMessage(messageId, requesterId);
+            groupMessageService.deleteMessage(groupId, messageId, requesterId);
             // Optionally, you may broadcast deletion via websocket (left as next step)
             return ResponseEntity.ok().build();
         } catch (RuntimeException ex) {
@@ -1,6 +1,8 @@
 package com.studyGroup.backend.controller;
 
 import com.studyGroup.backend.dto.NotificationDTO;
+import com.studyGroup.backend.dto.NotificationPageDTO;
+import com.studyGroup.backend.dto.UnreadCountDTO;
 import com.studyGroup.backend.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -32,6 +34,31 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    /**
+     * Cursor-based inbox. First load: no cursor, returns the newest page.
+     * Older pages: {@code ?before=<nextBefore>}. {@code ?unreadOnly=true} skips read notifications.
+     */
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<?> getNotificationPage(@PathVariable Integer userId,
+                                                 @RequestParam(required = false) Integer before,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 @RequestParam(defaultValue = "false") boolean unreadOnly) {
+        try {
+            NotificationPageDTO page = notificationService.getNotificationPage(userId, before, limit, unreadOnly);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    /**
+     * Unread count for the bell; live updates arrive on /queue/notifications/{userId}/unread-count.
+     */
+    @GetMapping("/user/{userId}/unread-count")
+    public ResponseEntity<UnreadCountDTO> getUnreadCount(@PathVariable Integer userId) {
+        return ResponseEntity.ok(notificationService.getUnreadCount(userId));
+    }
+
     @PutMapping("/{id}/read")
     public ResponseEntity<Void> markAsRead(@PathVariable Integer id) {
         notificationService.markAsRead(id);
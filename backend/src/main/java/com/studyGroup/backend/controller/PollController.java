@@ -1,5 +1,6 @@
 package com.studyGroup.backend.controller;
 
+import com.studyGroup.backend.config.AuthenticatedUser;
 import com.studyGroup.backend.dto.ChatMessageDTO;
 import com.studyGroup.backend.dto.PollOptionDTO;
 import com.studyGroup.backend.model.Group;
@@ -12,11 +13,17 @@ import com.studyGroup.backend.repository.GroupRepository;
 import com.studyGroup.backend.repository.PollOptionRepository;
 import com.studyGroup.backend.repository.PollRepository;
 import com.studyGroup.backend.repository.UserRepository;
+import com.studyGroup.backend.service.ChatSearchIndex;
+import com.studyGroup.backend.service.ChatTailCache;
+import com.studyGroup.backend.service.GroupBroadcastBatcher;
+import com.studyGroup.backend.service.GroupSequenceAllocator;
+import com.studyGroup.backend.service.PollResultBroadcaster;
+import com.studyGroup.backend.service.PollVoteCounter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -32,7 +39,12 @@ public class PollController {
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
     private final GroupMessageRepository groupMessageRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupBroadcastBatcher groupBroadcastBatcher;
+    private final ChatTailCache chatTailCache;
+    private final ChatSearchIndex chatSearchIndex;
+    private final GroupSequenceAllocator groupSequenceAllocator;
+    private final PollVoteCounter pollVoteCounter;
+    private final PollResultBroadcaster pollResultBroadcaster;
 
     @PostMapping("/{groupId}/polls")
     public ResponseEntity<?> createPoll(@PathVariable Long groupId, @RequestBody CreatePollRequest req,
@@ -66,6 +78,7 @@ public class PollController {
         gm.setContent(req.getQuestion());
         gm.setMessageType("POLL");
         gm.setTimestamp(LocalDateTime.now());
+        gm.setSeq(groupSequenceAllocator.next(groupId));
     // associate poll id on the message so it's discoverable in history
     groupMessageRepository.save(gm);
     gm.setPollId(saved.getId());
@@ -75,6 +88,7 @@ public class PollController {
         ChatMessageDTO dto = new ChatMessageDTO();
         dto.setGroupId(groupId);
         dto.setMessageId(savedMsg.getId());
+        dto.setSeq(savedMsg.getSeq());
         dto.setSenderId(creator.getId());
         dto.setSenderName(creator.getName());
         dto.setContent(savedMsg.getContent());
@@ -86,30 +100,31 @@ public class PollController {
         .collect(Collectors.toList()));
 
         // Broadcast
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, dto);
+        chatTailCache.append(dto);
+        chatSearchIndex.add(groupId, dto.getMessageId(), dto.getContent());
+        groupBroadcastBatcher.publish(groupId, dto);
 
         return ResponseEntity.ok(dto);
     }
 
     @PostMapping("/polls/{pollId}/options/{optionId}/vote")
-    public ResponseEntity<?> vote(@PathVariable Long pollId, @PathVariable Long optionId, @RequestBody VoteRequest req) {
-        // simple vote increment (no duplicate protection)
-        PollOption opt = pollOptionRepository.findById(optionId).orElseThrow(() -> new RuntimeException("Option not found"));
-        opt.setVoteCount(opt.getVoteCount() + 1);
-        PollOption savedOpt = pollOptionRepository.save(opt);
-
-        // broadcast vote update to group so other clients can update UI live
-        Long groupId = savedOpt.getPoll().getGroup().getGroupId();
-        // minimal payload
-        PollVoteDTO voteDto = new PollVoteDTO();
-        voteDto.setMessageType("POLL_VOTE");
-        voteDto.setPollId(pollId);
-        voteDto.setOptionId(savedOpt.getId());
-        voteDto.setVoteCount(savedOpt.getVoteCount());
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, voteDto);
+    public ResponseEntity<?> vote(@PathVariable Long pollId, @PathVariable Long optionId, Principal principal) {
+        // The voter is whoever the JWT says, never a client-supplied id
+        Integer voterId = AuthenticatedUser.idOf(principal);
+        if (voterId == null) {
+            return ResponseEntity.status(401).body("Authentication required");
+        }
+        // One vote per user; voting again for another option moves the vote. Counted in memory, written in batches
+        PollVoteCounter.VoteResult result = pollVoteCounter.vote(pollId, optionId, voterId);
+        PollVoteCounter.Vote vote = result.chosen();
+
+        if (result.changed()) {
+            // Other clients get the new totals in the poll's next POLL_RESULTS frame
+            pollResultBroadcaster.voteChanged(vote.pollId(), vote.groupId());
+        }
 
         // return updated option
-        return ResponseEntity.ok(new PollOptionDTO(savedOpt.getId(), savedOpt.getOptionText(), savedOpt.getVoteCount()));
+        return ResponseEntity.ok(new PollOptionDTO(vote.optionId(), vote.optionText(), vote.voteCount()));
     }
 
     public static class CreatePollRequest {
@@ -123,10 +138,4 @@ public class PollController {
         public List<String> getOptions() { return options; }
         public void setOptions(List<String> o) { this.options = o; }
     }
-
-    public static class VoteRequest {
-        private Integer voterId; // not used in this simple impl
-        public Integer getVoterId() { return voterId; }
-        public void setVoterId(Integer v) { this.voterId = v; }
-    }
 }
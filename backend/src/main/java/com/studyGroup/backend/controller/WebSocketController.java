@@ -1,54 +1,145 @@
 package com.studyGroup.backend.controller;
 
+import com.studyGroup.backend.config.AuthenticatedUser;
 import com.studyGroup.backend.dto.ChatMessageDTO;
-import com.studyGroup.backend.model.GroupMessage;
+import com.studyGroup.backend.dto.ChatResyncDTO;
+import com.studyGroup.backend.dto.ChatResyncRequest;
+import com.studyGroup.backend.dto.ReadPointerRequest;
+import com.studyGroup.backend.dto.TypingRequest;
+import com.studyGroup.backend.service.ChatDedupWindow;
+import com.studyGroup.backend.service.ChatLaneExecutor;
+import com.studyGroup.backend.service.ChatSearchIndex;
+import com.studyGroup.backend.service.ChatTailCache;
+import com.studyGroup.backend.service.GroupBroadcastBatcher;
+import com.studyGroup.backend.service.ChatWriteBehindService;
 import com.studyGroup.backend.service.GroupMessageService;
-import com.studyGroup.backend.repository.MessageReplyRepository;
+import com.studyGroup.backend.service.PresenceRegistry;
+import com.studyGroup.backend.service.ReadPointerService;
 
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
-import java.time.LocalDateTime;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequiredArgsConstructor
 public class WebSocketController {
 
+    private final ChatWriteBehindService chatWriteBehindService;
+    private final ChatDedupWindow chatDedupWindow;
+    private final ChatLaneExecutor chatLaneExecutor;
+    private final ChatTailCache chatTailCache;
+    private final ChatSearchIndex chatSearchIndex;
     private final GroupMessageService groupMessageService;
-    private final MessageReplyRepository messageReplyRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupBroadcastBatcher groupBroadcastBatcher;
+    private final PresenceRegistry presenceRegistry;
+    private final ReadPointerService readPointerService;
 
+    /**
+     * Sends a chat message. The sender gets the saved message back on /user/queue/chat.ack (with
+     * its clientMessageId), so it can pipeline sends and match the acks. Resending a
+     * clientMessageId that was already accepted just acks the original again - no new row, no
+     * second broadcast. On an authenticated session the sender is the session's user.
+     */
     @MessageMapping("/chat.sendMessage/{groupId}")
-    public void sendMessage(@DestinationVariable Long groupId, ChatMessageDTO chatMessage) {
+    @SendToUser(destinations = "/queue/chat.ack", broadcast = false)
+    public CompletableFuture<ChatMessageDTO> sendMessage(@DestinationVariable Long groupId, ChatMessageDTO chatMessage,
+                                                         Principal principal) {
         chatMessage.setGroupId(groupId); // Ensure groupId is set from path variable
-        chatMessage.setTimestamp(LocalDateTime.now()); // Set server-side timestamp
-
-        // Save the message and return it
-        GroupMessage savedMessage = groupMessageService.saveMessage(chatMessage);
-
-        // Build DTO and include reply info if any
-        ChatMessageDTO dto = new ChatMessageDTO();
-        dto.setGroupId(savedMessage.getGroup().getGroupId());
-        dto.setMessageId(savedMessage.getId());
-        dto.setSenderId(savedMessage.getSender().getId());
-        dto.setSenderName(savedMessage.getSender().getName());
-        dto.setContent(savedMessage.getContent());
-        dto.setTimestamp(savedMessage.getTimestamp());
-        dto.setMessageType(savedMessage.getMessageType());
-
-        // If a MessageReply exists linking this saved message, include reply info
-        messageReplyRepository.findByReplyMessage_Id(savedMessage.getId()).ifPresent(mr -> {
-            dto.setReplyToMessageId(mr.getOriginalMessage().getId());
-            dto.setReplyToContent(mr.getOriginalMessage().getContent());
-            dto.setReplyToSenderName(mr.getOriginalMessage().getSender().getName());
+        Integer senderId = AuthenticatedUser.idOf(principal);
+        if (senderId != null) {
+            chatMessage.setSenderId(senderId);
+        }
+
+        // Handed to the group's lane so a group's messages are accepted in the order they arrived
+        // and a busy group can't occupy every inbound thread.
+        // The pipeline assigns the id, server-side timestamp and reply info, and completes
+        // once the message is in the local chat log; the database insert happens behind it
+        CompletableFuture<ChatMessageDTO> ack = new CompletableFuture<>();
+        chatLaneExecutor.execute(groupId, () -> {
+            try {
+                // Lanes run a group's sends one at a time, so nothing can claim the id in between
+                CompletableFuture<ChatMessageDTO> earlier = chatDedupWindow.find(
+                        groupId, chatMessage.getSenderId(), chatMessage.getClientMessageId());
+                if (earlier != null) {
+                    relay(earlier, ack);
+                    return;
+                }
+                // The log completes the future on its single writer thread; everything after that
+                // goes back to the group's lane so the writer only ever does group commits
+                relay(chatWriteBehindService.submit(chatMessage)
+                        .thenApplyAsync(dto -> {
+                            chatTailCache.append(dto);
+                            chatSearchIndex.add(groupId, dto.getMessageId(), dto.getContent());
+                            groupBroadcastBatcher.publish(groupId, dto);
+                            // Your own message never counts as unread
+                            readPointerService.markRead(dto.getSenderId(), groupId, dto.getSeq());
+                            return dto;
+                        }, chatLaneExecutor.forGroup(groupId)), ack);
+            } catch (RuntimeException e) {
+                ack.completeExceptionally(e);
+                throw e;
+            }
         });
+        return ack;
+    }
+
+    private static void relay(CompletableFuture<ChatMessageDTO> source, CompletableFuture<ChatMessageDTO> target) {
+        source.whenComplete((dto, e) -> {
+            if (e != null) {
+                target.completeExceptionally(e);
+            } else {
+                target.complete(dto);
+            }
+        });
+    }
+
+    /**
+     * Typing indicator. Clients send {"typing": true} while typing (renewed every few seconds)
+     * and {"typing": false} when done; subscribers see it in the next presence frame.
+     */
+    @MessageMapping("/typing/{groupId}")
+    public void typing(@DestinationVariable Long groupId, TypingRequest request, SimpMessageHeaderAccessor headers) {
+        presenceRegistry.typing(headers.getSessionId(), groupId, request.isTyping());
+    }
+
+    /**
+     * Read pointer: clients send {"seq": n} with the newest message they have shown in the group.
+     * Cheap to send often; only the in-memory pointer moves, the database write is batched.
+     * Applies to the session's authenticated user, and only in groups they belong to.
+     */
+    @MessageMapping("/read/{groupId}")
+    public void markRead(@DestinationVariable Long groupId, ReadPointerRequest request, Principal principal) {
+        Integer userId = AuthenticatedUser.idOf(principal);
+        if (userId != null && readPointerService.isMember(userId, groupId)) {
+            readPointerService.markRead(userId, groupId, request.getSeq());
+        }
+    }
 
-        // Explicitly broadcast to topic so all subscribers receive the persisted
-        // message
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, dto);
+    /**
+     * Reconnect catch-up: the client sends its last seen seq and change number per group and gets
+     * back, on its own session only, what each group missed. Subscribe to /user/queue/chat.resync.
+     */
+    @MessageMapping("/chat.resync")
+    @SendToUser(destinations = "/queue/chat.resync", broadcast = false)
+    public List<ChatResyncDTO> resync(ChatResyncRequest request) {
+        List<ChatResyncDTO> deltas = new ArrayList<>();
+        if (request.getLastSeenSeqs() == null) {
+            return deltas;
+        }
+        Map<Long, Long> lastSeenChanges = request.getLastSeenChanges() == null ? Map.of() : request.getLastSeenChanges();
+        for (Map.Entry<Long, Long> entry : request.getLastSeenSeqs().entrySet()) {
+            deltas.add(groupMessageService.resync(entry.getKey(), entry.getValue(), lastSeenChanges.get(entry.getKey()), null));
+        }
+        return deltas;
     }
-}
\ No newline at end of file
+}
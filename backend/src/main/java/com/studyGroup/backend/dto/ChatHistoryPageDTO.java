@@ -0,0 +1,22 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * One page of a group's chat history. Messages are always in ascending seq order;
+ * pass {@code oldestSeq} as the next {@code before} cursor to scroll back,
+ * or {@code newestSeq} as {@code after} to catch up.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistoryPageDTO {
+    private List<ChatMessageDTO> messages;
+    // true when there are more messages past this page in the direction of the seek
+    private boolean hasMore;
+    private Long oldestSeq;
+    private Long newestSeq;
+}
@@ -12,6 +12,8 @@ import java.util.List;
 public class ChatMessageDTO {
     private Long groupId;
     private Long messageId;
+    // Consecutive within a group; a jump tells the client it missed messages
+    private Long seq;
     private Integer senderId;
     private String senderName;
     private String content;
@@ -24,4 +26,6 @@ public class ChatMessageDTO {
     // Poll info
     private Long pollId;
     private List<com.studyGroup.backend.dto.PollOptionDTO> pollOptions;
+    // Optional id chosen by the sending client; a resend with the same id returns the original message
+    private String clientMessageId;
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * What a group's chat missed since a client's last seen chat seq and change number: new messages
+ * (in seq order), ids of deleted messages and current totals of polls that got votes.
+ * Applying the same delta twice is harmless, so clients can keep their last seen seq and
+ * {@code changeCursor} as the cursors for the next resync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatResyncDTO {
+    private Long groupId;
+    private List<ChatMessageDTO> messages;
+    // true when more new messages remain; ask again with the newest seq received
+    private boolean hasMoreMessages;
+    private List<Long> deletedMessageIds;
+    private List<PollResultDTO> pollResults;
+    // Highest change number covered by deletedMessageIds and pollResults
+    private Long changeCursor;
+}
@@ -0,0 +1,14 @@
+package com.studyGroup.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+public class ChatResyncRequest {
+    // groupId -> highest chat seq the client has seen for that group
+    private Map<Long, Long> lastSeenSeqs;
+    // groupId -> changeCursor from the previous resync of that group; omit a group to start from now
+    private Map<Long, Long> lastSeenChanges;
+}
@@ -0,0 +1,15 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSearchHitDTO {
+    private ChatMessageDTO message;
+    // Part of the content around the first matching word
+    private String snippet;
+    private double score;
+}
@@ -0,0 +1,18 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSearchPageDTO {
+    private String query;
+    private int page;
+    private int size;
+    private int totalHits;
+    private List<ChatSearchHitDTO> hits;
+}
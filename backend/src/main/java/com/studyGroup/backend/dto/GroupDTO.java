@@ -16,6 +16,7 @@ public class GroupDTO {
     private long memberCount;
     private boolean hasPasskey;
     private String userRole;
+    private long unreadCount;
 	public Long getGroupId() {
 		return groupId;
 	}
@@ -76,6 +77,12 @@ public class GroupDTO {
 	public void setUserRole(String userRole) {
 		this.userRole = userRole;
 	}
+	public long getUnreadCount() {
+		return unreadCount;
+	}
+	public void setUnreadCount(long unreadCount) {
+		this.unreadCount = unreadCount;
+	}
 	public GroupDTO(Long groupId, String name, String description, CourseSummaryDTO associatedCourse,
 			UserSummaryDTO createdBy, String privacy, Integer memberLimit, long memberCount, boolean hasPasskey,
 			String userRole) {
@@ -0,0 +1,20 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * One page of a user's inbox, newest first. Pass {@code nextBefore} as the next {@code before}
+ * cursor to load older notifications.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPageDTO {
+    private List<NotificationDTO> notifications;
+    // true when there are older notifications past this page
+    private boolean hasMore;
+    private Integer nextBefore;
+}
@@ -0,0 +1,14 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollResultDTO {
+    private Long pollId;
+    private List<PollOptionDTO> options;
+}
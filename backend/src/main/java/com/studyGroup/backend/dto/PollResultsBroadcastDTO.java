@@ -0,0 +1,18 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Current totals of every option of a poll, sent on the group topic after votes change.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollResultsBroadcastDTO {
+    private String messageType = "POLL_RESULTS";
+    private Long pollId;
+    private List<PollOptionDTO> options;
+}
@@ -0,0 +1,14 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceChangeDTO {
+    private Integer userId;
+    // ONLINE, TYPING or OFFLINE
+    private String status;
+}
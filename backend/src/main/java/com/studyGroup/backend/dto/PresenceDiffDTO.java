@@ -0,0 +1,17 @@
+package com.studyGroup.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDiffDTO {
+    private String messageType = "PRESENCE";
+    private Long groupId;
+    // Only users whose status changed since the previous frame
+    private List<PresenceChangeDTO> changes;
+}
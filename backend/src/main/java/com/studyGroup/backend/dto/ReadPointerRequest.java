@@ -0,0 +1,11 @@
+package com.studyGroup.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ReadPointerRequest {
+    // seq of the newest message the user has seen in the group
+    private Long seq;
+}
@@ -0,0 +1,11 @@
+package com.studyGroup.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class TypingRequest {
+    // false when the user cleared the input or sent the message
+    private boolean typing = true;
+}
@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -26,7 +27,7 @@ public class CalendarEvent {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("calendar_events")
     private Long id;
 
     @Column(nullable = false)
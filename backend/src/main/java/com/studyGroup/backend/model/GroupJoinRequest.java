@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,7 +12,7 @@ import lombok.NoArgsConstructor;
 public class GroupJoinRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("group_join_request")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
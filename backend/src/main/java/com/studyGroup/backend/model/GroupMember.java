@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Data
 public class GroupMember {
@@ -25,6 +27,10 @@ public class GroupMember {
 
     private String role;
 
+    // Group-scoped notifications from before this are not shown to the member; null for older rows
+    @Column(name = "joined_at")
+    private LocalDateTime joinedAt = LocalDateTime.now();
+
 	public GroupMemberId getId() {
 		return id;
 	}
@@ -57,6 +63,14 @@ public class GroupMember {
 		this.role = role;
 	}
 
+	public LocalDateTime getJoinedAt() {
+		return joinedAt;
+	}
+
+	public void setJoinedAt(LocalDateTime joinedAt) {
+		this.joinedAt = joinedAt;
+	}
+
 	public GroupMember(GroupMemberId id, Group group, User user, String role) {
 		super();
 		this.id = id;
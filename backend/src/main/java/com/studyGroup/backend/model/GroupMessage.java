@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -7,14 +8,21 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "group_messages")
+@Table(name = "group_messages", indexes = {
+        // Id-ordered scans of a group, e.g. building its search index: WHERE group_id = ? AND id > ? ORDER BY id
+        @Index(name = "idx_group_messages_group_id_id", columnList = "group_id, id"),
+        // Keyset (seek) pagination of chat history (WHERE group_id = ? AND seq < ? ORDER BY seq DESC), gap fetches, resync
+        @Index(name = "idx_group_messages_group_id_seq", columnList = "group_id, seq")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class GroupMessage {
 
+    // Ids come from id_blocks rather than AUTO_INCREMENT so the chat write-behind
+    // pipeline can assign them before the row is inserted
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("group_messages")
     private Long id;
 
     // Foreign Key to the existing 'Group' entity
@@ -36,6 +44,10 @@ public class GroupMessage {
     @Column(name = "poll_id")
     private Long pollId;
 
+    // Per-group sequence number (see GroupSequenceAllocator); 0 or below for messages written before it existed
+    @Column(name = "seq")
+    private Long seq;
+
     @Column(name = "timestamp", nullable = false, updatable = false)
     private LocalDateTime timestamp = LocalDateTime.now();
 
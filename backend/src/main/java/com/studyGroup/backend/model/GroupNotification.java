@@ -0,0 +1,51 @@
+package com.studyGroup.backend.model;
+
+import com.studyGroup.backend.config.BlockId;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification addressed to every member of a group, stored once instead of once per member.
+ * Ids come from the same block as {@link Notification}, so both kinds can share one inbox and the
+ * same read/delete endpoints. Per-member state lives in {@link GroupNotificationReceipt}.
+ */
+@Entity
+@Table(name = "group_notifications", indexes = @Index(name = "idx_group_notifications_group", columnList = "group_id, created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class GroupNotification {
+
+    @Id
+    @BlockId("notifications")
+    private Integer id;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    // Member who caused the notification and doesn't need to see it (e.g. the event creator)
+    @Column(name = "excluded_user_id")
+    private Integer excludedUserId;
+
+    @Column(name = "title")
+    private String title;
+
+    @Column(name = "message", nullable = false)
+    private String message;
+
+    @Column(name = "type", nullable = false)
+    private String type;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "related_entity_id")
+    private Long relatedEntityId;
+
+    @Column(name = "related_entity_type")
+    private String relatedEntityType;
+}
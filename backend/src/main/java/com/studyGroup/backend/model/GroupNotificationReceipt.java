@@ -0,0 +1,29 @@
+package com.studyGroup.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A member's read and dismiss markers for a {@link GroupNotification}. Only exists once the
+ * member has done something with it; no row means unread and not dismissed.
+ */
+@Entity
+@Table(name = "group_notification_receipts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupNotificationReceipt {
+
+    @EmbeddedId
+    private GroupNotificationReceiptId id;
+
+    @Column(name = "is_read", nullable = false)
+    private Boolean isRead = false;
+
+    @Column(name = "is_dismissed", nullable = false)
+    private Boolean isDismissed = false;
+}
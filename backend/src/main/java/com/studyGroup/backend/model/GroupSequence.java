@@ -0,0 +1,32 @@
+package com.studyGroup.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Last chat sequence number and last change number handed out for a group. Only used with the
+ * external broker relay, where several nodes write to the same group; a single node keeps its
+ * counters in memory.
+ */
+@Entity
+@Table(name = "group_sequences")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupSequence {
+
+    @Id
+    @Column(name = "group_id")
+    private Long groupId;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+
+    // Null until the group's first deletion or vote flush; then seeded from the tombstones and polls
+    @Column(name = "last_change")
+    private Long lastChange;
+}
@@ -0,0 +1,27 @@
+package com.studyGroup.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Hi-lo id reservation: one row per table whose ids are handed out by the application.
+ * {@code nextVal} is the first id of the next unreserved block.
+ */
+@Entity
+@Table(name = "id_blocks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdBlock {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "next_val", nullable = false)
+    private Long nextVal;
+}
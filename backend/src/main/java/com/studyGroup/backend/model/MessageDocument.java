@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,7 +12,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class MessageDocument {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("message_documents")
     private Long id;
 
     @Column(name = "original_filename")
@@ -1,19 +1,24 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "message_replies")
+@Table(name = "message_replies", indexes = {
+        // reply_message_id is already indexed by its unique constraint; this one serves
+        // "replies to message X" lookups and the cascade delete in GroupMessageService
+        @Index(name = "idx_message_replies_original_message_id", columnList = "original_message_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class MessageReply {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("message_replies")
     private Long id;
 
     // The message that is the reply
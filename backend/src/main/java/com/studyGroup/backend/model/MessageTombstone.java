@@ -0,0 +1,47 @@
+package com.studyGroup.backend.model;
+
+import com.studyGroup.backend.config.BlockId;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * Records that a chat message was deleted, so reconnecting clients can be told about it.
+ * The deletion takes the next number on the group's change cursor (see GroupSequenceAllocator),
+ * so "deleted since change X" is simply {@code change_seq > X}.
+ */
+@Entity
+@Table(name = "group_message_tombstones", indexes = {
+        @Index(name = "idx_group_message_tombstones_group_id_change_seq", columnList = "group_id, change_seq"),
+        // Crash replay of the chat log skips messages deleted after they were flushed
+        @Index(name = "idx_group_message_tombstones_message_id", columnList = "message_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class MessageTombstone {
+
+    @Id
+    @BlockId("group_messages")
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt = LocalDateTime.now();
+
+    public MessageTombstone(Long groupId, Long messageId, Long changeSeq) {
+        this.groupId = groupId;
+        this.messageId = messageId;
+        this.changeSeq = changeSeq;
+    }
+}
@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,7 +12,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class PinnedMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("pinned_messages")
     private Long id;
 
     @Column(name = "group_id", nullable = false)
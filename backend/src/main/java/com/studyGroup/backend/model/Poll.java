@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -7,13 +8,15 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "polls")
+@Table(name = "polls", indexes = {
+        @Index(name = "idx_polls_group_id_vote_marker", columnList = "group_id, vote_marker")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Poll {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("polls")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,4 +32,8 @@ public class Poll {
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Group change number taken by the latest flushed vote, for reconnect resync
+    @Column(name = "vote_marker")
+    private Long voteMarker;
 }
@@ -1,5 +1,6 @@
 package com.studyGroup.backend.model;
 
+import com.studyGroup.backend.config.BlockId;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -12,7 +13,7 @@ import lombok.Setter;
 @NoArgsConstructor
 public class PollOption {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockId("poll_options")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
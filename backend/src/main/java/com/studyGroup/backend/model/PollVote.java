@@ -0,0 +1,31 @@
+package com.studyGroup.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's current vote in a poll; one row per user and poll, updated when the vote changes.
+ * Written in batches by PollVoteCounter.
+ */
+@Entity
+@Table(name = "poll_votes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollVote {
+
+    @EmbeddedId
+    private PollVoteId id;
+
+    @Column(name = "option_id", nullable = false)
+    private Long optionId;
+
+    @Column(name = "voted_at", nullable = false)
+    private LocalDateTime votedAt;
+}
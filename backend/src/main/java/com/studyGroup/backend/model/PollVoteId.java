@@ -0,0 +1,22 @@
+package com.studyGroup.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollVoteId implements Serializable {
+
+    @Column(name = "poll_id")
+    private Long pollId;
+
+    @Column(name = "user_id")
+    private Integer userId;
+}
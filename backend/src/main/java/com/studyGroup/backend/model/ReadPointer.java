@@ -0,0 +1,26 @@
+package com.studyGroup.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Highest chat sequence number a member has read in a group. Written in batches by
+ * ReadPointerService; the value only ever moves forward.
+ */
+@Entity
+@Table(name = "read_pointers")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadPointer {
+
+    @EmbeddedId
+    private GroupMemberId id;
+
+    @Column(name = "last_read_seq", nullable = false)
+    private Long lastReadSeq;
+}
@@ -27,6 +27,8 @@ public interface GroupMemberRepository extends JpaRepository<GroupMember, GroupM
      */
     Optional<GroupMember> findByGroupGroupIdAndUser_Id(Long groupId, Integer userId); 
 
+    boolean existsByGroupGroupIdAndUser_Id(Long groupId, Integer userId);
+
     // Used by GroupService.getGroupMembers
     List<GroupMember> findByGroup(Group group);
 
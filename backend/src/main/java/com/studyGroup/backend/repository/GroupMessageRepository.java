@@ -1,9 +1,16 @@
 package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.GroupMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface GroupMessageRepository extends JpaRepository<GroupMessage, Long> {
@@ -11,6 +18,58 @@ public interface GroupMessageRepository extends JpaRepository<GroupMessage, Long
     /**
      * Finds all messages for a given group, ordered by timestamp ascending.
      * This is the main method you'll use to load a chat history.
+     * History reads fetch the sender in the same query so hydration doesn't lazy-load it per row.
      */
+    @EntityGraph(attributePaths = "sender")
     List<GroupMessage> findByGroup_GroupIdOrderByTimestampAsc(Long groupId);
-}
\ No newline at end of file
+
+    /**
+     * Newest page of a group's history (first load). Uses the (group_id, seq) index; unlike ids,
+     * which come from per-node blocks, seqs are in send order within a group.
+     */
+    @EntityGraph(attributePaths = "sender")
+    List<GroupMessage> findByGroup_GroupIdOrderBySeqDesc(Long groupId, Pageable pageable);
+
+    /**
+     * Seeks backwards from a cursor: messages strictly older than {@code beforeSeq}, newest first.
+     */
+    @EntityGraph(attributePaths = "sender")
+    List<GroupMessage> findByGroup_GroupIdAndSeqLessThanOrderBySeqDesc(Long groupId, Long beforeSeq, Pageable pageable);
+
+    /**
+     * A range of a group's sequence numbers, for clients that detected a gap. Uses the (group_id, seq) index.
+     */
+    @EntityGraph(attributePaths = "sender")
+    List<GroupMessage> findByGroup_GroupIdAndSeqBetweenOrderBySeqAsc(Long groupId, Long fromSeq, Long toSeq);
+
+    /**
+     * Seeks forwards by sequence number: messages after {@code afterSeq}, oldest first. Used by
+     * history paging, resync and the archiver.
+     */
+    @EntityGraph(attributePaths = "sender")
+    List<GroupMessage> findByGroup_GroupIdAndSeqGreaterThanOrderBySeqAsc(Long groupId, Long afterSeq, Pageable pageable);
+
+    @EntityGraph(attributePaths = "sender")
+    List<GroupMessage> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Id and text only, seeking forward from {@code afterId}; used to build a group's search index.
+     */
+    @Query("select m.id as id, m.content as content from GroupMessage m "
+            + "where m.group.groupId = :groupId and m.id > :afterId order by m.id")
+    List<MessageText> findTexts(@Param("groupId") Long groupId, @Param("afterId") Long afterId, Pageable pageable);
+
+    interface MessageText {
+        Long getId();
+        String getContent();
+    }
+
+    // Rows that have been moved to the chat archive
+    @Modifying
+    @Query("delete from GroupMessage m where m.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Single message with its sender, for building reply previews off the request thread (no open session)
+    @EntityGraph(attributePaths = "sender")
+    Optional<GroupMessage> findWithSenderById(Long id);
+}
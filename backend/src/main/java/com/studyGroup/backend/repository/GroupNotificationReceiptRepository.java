@@ -0,0 +1,15 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.GroupNotificationReceipt;
+import com.studyGroup.backend.model.GroupNotificationReceiptId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GroupNotificationReceiptRepository extends JpaRepository<GroupNotificationReceipt, GroupNotificationReceiptId> {
+
+    List<GroupNotificationReceipt> findByIdUserIdAndIdNotificationIdIn(Integer userId, Collection<Integer> notificationIds);
+}
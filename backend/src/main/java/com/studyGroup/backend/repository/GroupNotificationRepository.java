@@ -0,0 +1,64 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.GroupNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A member sees the group-scoped notifications of their groups that were created after they joined
+ * (every one when the membership predates joined_at) and that don't exclude them.
+ */
+@Repository
+public interface GroupNotificationRepository extends JpaRepository<GroupNotification, Integer> {
+
+    @Query("select g from GroupNotification g, GroupMember m where m.id.userId = :userId and m.id.groupId = g.groupId "
+            + "and (m.joinedAt is null or g.createdAt >= m.joinedAt) "
+            + "and (g.excludedUserId is null or g.excludedUserId <> :userId) "
+            + "order by g.createdAt desc")
+    List<GroupNotification> findVisible(@Param("userId") Integer userId);
+
+    long countByIdIn(Collection<Integer> ids);
+
+    // Which of the given ids the user can see (excluded ones included, as they are the user's own events)
+    @Query("select g.id from GroupNotification g, GroupMember m where g.id in :ids "
+            + "and m.id.userId = :userId and m.id.groupId = g.groupId "
+            + "and (m.joinedAt is null or g.createdAt >= m.joinedAt)")
+    List<Integer> findVisibleIds(@Param("ids") Collection<Integer> ids, @Param("userId") Integer userId);
+
+    // Creation time of a notification the member can see, for resolving an inbox cursor
+    @Query("select g.createdAt from GroupNotification g, GroupMember m where g.id = :id "
+            + "and m.id.userId = :userId and m.id.groupId = g.groupId "
+            + "and (m.joinedAt is null or g.createdAt >= m.joinedAt)")
+    Optional<LocalDateTime> findVisibleCreatedAt(@Param("id") Integer id, @Param("userId") Integer userId);
+
+    // Inbox pages for one member, newest first; (createdAt, id) is the cursor
+    @Query("select g from GroupNotification g, GroupMember m where m.id.userId = :userId and m.id.groupId = g.groupId "
+            + "and (m.joinedAt is null or g.createdAt >= m.joinedAt) "
+            + "and (g.excludedUserId is null or g.excludedUserId <> :userId) "
+            + "order by g.createdAt desc, g.id desc")
+    List<GroupNotification> findInbox(@Param("userId") Integer userId, Pageable pageable);
+
+    @Query("select g from GroupNotification g, GroupMember m where m.id.userId = :userId and m.id.groupId = g.groupId "
+            + "and (m.joinedAt is null or g.createdAt >= m.joinedAt) "
+            + "and (g.excludedUserId is null or g.excludedUserId <> :userId) "
+            + "and (g.createdAt < :createdAt or (g.createdAt = :createdAt and g.id < :id)) "
+            + "order by g.createdAt desc, g.id desc")
+    List<GroupNotification> findInboxBefore(@Param("userId") Integer userId, @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Integer id, Pageable pageable);
+
+    // Neither read nor dismissed by the user
+    @Query("select count(g) from GroupNotification g, GroupMember m where m.id.userId = :userId and m.id.groupId = g.groupId "
+            + "and (m.joinedAt is null or g.createdAt >= m.joinedAt) "
+            + "and (g.excludedUserId is null or g.excludedUserId <> :userId) "
+            + "and not exists (select r from GroupNotificationReceipt r where r.id.notificationId = g.id "
+            + "and r.id.userId = :userId and (r.isRead = true or r.isDismissed = true))")
+    long countUnread(@Param("userId") Integer userId);
+}
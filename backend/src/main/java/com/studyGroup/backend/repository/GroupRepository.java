@@ -1,6 +1,7 @@
 package com.studyGroup.backend.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.studyGroup.backend.model.Group;
@@ -11,4 +12,7 @@ import java.util.List;
 public interface GroupRepository extends JpaRepository<Group, Long> {
    
     List<Group> findAllByPrivacyIgnoreCase(String privacy);
+
+    @Query("select g.groupId from Group g")
+    List<Long> findAllGroupIds();
 }
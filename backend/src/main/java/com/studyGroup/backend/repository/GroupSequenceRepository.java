@@ -0,0 +1,20 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.GroupSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GroupSequenceRepository extends JpaRepository<GroupSequence, Long> {
+
+    // SELECT ... FOR UPDATE so two nodes never hand out the same sequence number
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from GroupSequence s where s.groupId = :groupId")
+    Optional<GroupSequence> findForUpdate(@Param("groupId") Long groupId);
+}
@@ -0,0 +1,20 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.IdBlock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IdBlockRepository extends JpaRepository<IdBlock, String> {
+
+    // SELECT ... FOR UPDATE so two nodes never reserve the same block
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from IdBlock b where b.name = :name")
+    Optional<IdBlock> findForUpdate(@Param("name") String name);
+}
@@ -2,8 +2,11 @@ package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.MessageDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +15,17 @@ public interface MessageDocumentRepository extends JpaRepository<MessageDocument
     MessageDocument findByMessage_Id(Long messageId);
 
     List<MessageDocument> findByMessage_Group_GroupIdOrderByUploadTimeDesc(Long groupId);
+
+    // File names of a group's documents without loading the documents or their messages, for the search index
+    @Query("select d.message.id as messageId, d.originalFilename as originalFilename "
+            + "from MessageDocument d where d.message.group.groupId = :groupId")
+    List<DocumentName> findDocumentNames(@Param("groupId") Long groupId);
+
+    @Query("select d.message.id from MessageDocument d where d.message.id in :ids")
+    List<Long> findMessageIdsIn(@Param("ids") Collection<Long> ids);
+
+    interface DocumentName {
+        Long getMessageId();
+        String getOriginalFilename();
+    }
 }
@@ -1,11 +1,49 @@
 package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.MessageReply;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface MessageReplyRepository extends JpaRepository<MessageReply, Long> {
     Optional<MessageReply> findByReplyMessage_Id(Long replyMessageId);
+
+    /**
+     * Reply info for a whole page of messages in one query (original message and its sender joined in).
+     */
+    @Query("select r.replyMessage.id as replyMessageId, o.id as originalMessageId, "
+            + "o.content as originalContent, s.name as originalSenderName "
+            + "from MessageReply r join r.originalMessage o join o.sender s "
+            + "where r.replyMessage.id in :replyMessageIds")
+    List<ReplyPreview> findReplyPreviews(@Param("replyMessageIds") Collection<Long> replyMessageIds);
+
+    // Bulk deletes for the message-delete cascade: one indexed DELETE each, no entities loaded
+    @Modifying
+    @Query("delete from MessageReply r where r.replyMessage.id = :messageId")
+    int deleteByReplyMessageId(@Param("messageId") Long messageId);
+
+    @Modifying
+    @Query("delete from MessageReply r where r.originalMessage.id = :messageId")
+    int deleteByOriginalMessageId(@Param("messageId") Long messageId);
+
+    // Messages among {@code ids} that have replies; the archiver keeps those live so the reply link stays valid
+    @Query("select distinct r.originalMessage.id from MessageReply r where r.originalMessage.id in :ids")
+    List<Long> findRepliedToIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from MessageReply r where r.replyMessage.id in :ids")
+    int deleteByReplyMessageIdIn(@Param("ids") Collection<Long> ids);
+
+    interface ReplyPreview {
+        Long getReplyMessageId();
+        Long getOriginalMessageId();
+        String getOriginalContent();
+        String getOriginalSenderName();
+    }
 }
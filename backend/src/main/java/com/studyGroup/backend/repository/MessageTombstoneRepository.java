@@ -0,0 +1,19 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.MessageTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MessageTombstoneRepository extends JpaRepository<MessageTombstone, Long> {
+
+    List<MessageTombstone> findByGroupIdAndChangeSeqGreaterThan(Long groupId, Long sinceChange);
+
+    // Deleted messages of a group with ids up to maxId, so their archived copies can be skipped
+    @Query("select t.messageId from MessageTombstone t where t.groupId = :groupId and t.messageId <= :maxId")
+    List<Long> findDeletedMessageIds(@Param("groupId") Long groupId, @Param("maxId") Long maxId);
+}
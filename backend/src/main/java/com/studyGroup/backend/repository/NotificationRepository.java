@@ -1,9 +1,17 @@
 package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Integer> {
@@ -12,7 +20,46 @@ public interface NotificationRepository extends JpaRepository<Notification, Inte
 
     List<Notification> findByUserIdAndIsReadOrderByCreatedAtDesc(Integer userId, Boolean isRead);
 
-    void deleteByUserIdAndIsRead(Integer userId, Boolean isRead);
+    long countByUserIdAndIsRead(Integer userId, Boolean isRead);
+
+    // Inbox pages, newest first; (createdAt, id) is the cursor
+    @Query("select n from Notification n where n.userId = :userId and (:unreadOnly = false or n.isRead = false) "
+            + "order by n.createdAt desc, n.id desc")
+    List<Notification> findInbox(@Param("userId") Integer userId, @Param("unreadOnly") boolean unreadOnly, Pageable pageable);
+
+    @Query("select n from Notification n where n.userId = :userId and (:unreadOnly = false or n.isRead = false) "
+            + "and (n.createdAt < :createdAt or (n.createdAt = :createdAt and n.id < :id)) "
+            + "order by n.createdAt desc, n.id desc")
+    List<Notification> findInboxBefore(@Param("userId") Integer userId, @Param("unreadOnly") boolean unreadOnly,
+                                       @Param("createdAt") LocalDateTime createdAt, @Param("id") Integer id,
+                                       Pageable pageable);
+
+    // Creation time of one of the user's notifications, for resolving an inbox cursor
+    @Query("select n.createdAt from Notification n where n.id = :id and n.userId = :userId")
+    Optional<LocalDateTime> findCreatedAt(@Param("id") Integer id, @Param("userId") Integer userId);
+
+    @Query("select n.userId from Notification n where n.id = :id")
+    Optional<Integer> findOwnerId(@Param("id") Integer id);
+
+    long countByIdIn(Collection<Integer> ids);
+
+    long countByIdInAndUserIdAndIsRead(Collection<Integer> ids, Integer userId, Boolean isRead);
+
+    // Bulk mutations: one statement each, only ever touching the user's own rows
+
+    @Modifying
+    @Query("update Notification n set n.isRead = true where n.id = :id and n.userId = :userId and n.isRead = false")
+    int markRead(@Param("id") Integer id, @Param("userId") Integer userId);
+
+    @Modifying
+    @Query("update Notification n set n.isRead = true where n.userId = :userId and n.isRead = false")
+    int markAllRead(@Param("userId") Integer userId);
+
+    @Modifying
+    @Query("delete from Notification n where n.userId = :userId and n.isRead = true")
+    int deleteRead(@Param("userId") Integer userId);
 
-    void deleteAllByIdIn(List<Integer> ids);
+    @Modifying
+    @Query("delete from Notification n where n.id in :ids and n.userId = :userId")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids, @Param("userId") Integer userId);
 }
@@ -2,7 +2,10 @@ package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.PinnedMessage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -10,4 +13,7 @@ public interface PinnedMessageRepository extends JpaRepository<PinnedMessage, Lo
     List<PinnedMessage> findByGroupId(Long groupId);
     boolean existsByGroupIdAndMessageId(Long groupId, Long messageId);
     void deleteByGroupIdAndMessageId(Long groupId, Long messageId);
+
+    @Query("select p.messageId from PinnedMessage p where p.messageId in :ids")
+    List<Long> findPinnedIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
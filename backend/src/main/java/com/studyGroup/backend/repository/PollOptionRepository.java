@@ -2,11 +2,35 @@ package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.PollOption;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PollOptionRepository extends JpaRepository<PollOption, Long> {
     List<PollOption> findByPoll_IdOrderById(Long pollId);
+
+    // Options of several polls at once, used when hydrating a page of chat history
+    List<PollOption> findByPoll_IdInOrderById(Collection<Long> pollIds);
+
+    // What the vote counter needs to know about an option, without loading the poll or group
+    @Query("select o.id as id, o.optionText as optionText, o.voteCount as voteCount, "
+            + "p.id as pollId, p.group.groupId as groupId from PollOption o join o.poll p where o.id = :id")
+    Optional<OptionTally> findTally(@Param("id") Long id);
+
+    interface OptionTally {
+        Long getId();
+
+        String getOptionText();
+
+        Long getVoteCount();
+
+        Long getPollId();
+
+        Long getGroupId();
+    }
 }
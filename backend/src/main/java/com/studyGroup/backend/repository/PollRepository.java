@@ -2,11 +2,26 @@ package com.studyGroup.backend.repository;
 
 import com.studyGroup.backend.model.Poll;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
 public interface PollRepository extends JpaRepository<Poll, Long> {
     List<Poll> findByGroup_GroupIdOrderByCreatedAtDesc(Long groupId);
+
+    // Polls of a group that received votes after the given group change number
+    List<Poll> findByGroup_GroupIdAndVoteMarkerGreaterThan(Long groupId, Long sinceChange);
+
+    @Query("select p.group.groupId from Poll p where p.id = :pollId")
+    Long findGroupId(@Param("pollId") Long pollId);
+
+    @Transactional
+    @Modifying
+    @Query("update Poll p set p.voteMarker = :marker where p.id = :pollId")
+    int updateVoteMarker(@Param("pollId") Long pollId, @Param("marker") Long marker);
 }
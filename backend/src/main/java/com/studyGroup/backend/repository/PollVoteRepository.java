@@ -0,0 +1,24 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.PollVote;
+import com.studyGroup.backend.model.PollVoteId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PollVoteRepository extends JpaRepository<PollVote, PollVoteId> {
+
+    // Just the ids, for rebuilding a poll's voter bitmaps
+    @Query("select v.id.userId as userId, v.optionId as optionId from PollVote v where v.id.pollId = :pollId")
+    List<Voter> findVoters(@Param("pollId") Long pollId);
+
+    interface Voter {
+        Integer getUserId();
+
+        Long getOptionId();
+    }
+}
@@ -0,0 +1,14 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.GroupMemberId;
+import com.studyGroup.backend.model.ReadPointer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReadPointerRepository extends JpaRepository<ReadPointer, GroupMemberId> {
+
+    List<ReadPointer> findByIdUserId(Integer userId);
+}
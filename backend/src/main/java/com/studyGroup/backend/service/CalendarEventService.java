@@ -141,18 +141,16 @@ public class CalendarEventService {
                 "CALENDAR_EVENT"
         );
         // Other members
-        for (GroupMember gm : members) {
-            Integer memberId = gm.getUser().getId();
-            if (!memberId.equals(user.getId())) {
-                notificationService.createUpdateNotification(
-                        memberId,
-                        "New session created",
-                        creatorName + " created '" + topic + "' in '" + groupName + "'.",
-                        eventId,
-                        "CALENDAR_EVENT"
-                );
-            }
-        }
+        notificationService.createGroupNotifications(
+                group.getGroupId(),
+                members.stream().map(gm -> gm.getUser().getId()).collect(Collectors.toList()),
+                user.getId(),
+                "New session created",
+                creatorName + " created '" + topic + "' in '" + groupName + "'.",
+                "Updates",
+                eventId,
+                "CALENDAR_EVENT"
+        );
 
         return convertToDTO(savedEvent);
     }
@@ -234,15 +232,16 @@ public class CalendarEventService {
 
         // In-app cancellation update for all members
         List<GroupMember> members = groupMemberRepository.findByGroup(event.getAssociatedGroup());
-        for (GroupMember gm : members) {
-            notificationService.createUpdateNotification(
-                    gm.getUser().getId(),
-                    "Session canceled",
-                    "Update: '" + event.getTopic() + "' has been canceled in '" + event.getAssociatedGroup().getName() + "'.",
-                    event.getId(),
-                    "CALENDAR_EVENT"
-            );
-        }
+        notificationService.createGroupNotifications(
+                event.getAssociatedGroup().getGroupId(),
+                members.stream().map(gm -> gm.getUser().getId()).collect(Collectors.toList()),
+                null,
+                "Session canceled",
+                "Update: '" + event.getTopic() + "' has been canceled in '" + event.getAssociatedGroup().getName() + "'.",
+                "Updates",
+                event.getId(),
+                "CALENDAR_EVENT"
+        );
 
         calendarEventRepository.delete(event);
     }
@@ -357,15 +356,18 @@ public class CalendarEventService {
 
         for (GroupMember member : members) {
             emailService.sendEmail(member.getUser().getEmail(), subject, body);
-            // In-app reminder notification
-            notificationService.createReminderNotification(
-                    member.getUser().getId(),
-                    "Upcoming session reminder",
-                    "Reminder: '" + event.getTopic() + "' starts at " + formatTimeRangeIST(event.getStartTime(), event.getEndTime()) + " in '" + event.getAssociatedGroup().getName() + "'.",
-                    event.getId(),
-                    "CALENDAR_EVENT"
-            );
         }
+        // In-app reminder notifications
+        notificationService.createGroupNotifications(
+                event.getAssociatedGroup().getGroupId(),
+                members.stream().map(member -> member.getUser().getId()).collect(Collectors.toList()),
+                null,
+                "Upcoming session reminder",
+                "Reminder: '" + event.getTopic() + "' starts at " + formatTimeRangeIST(event.getStartTime(), event.getEndTime()) + " in '" + event.getAssociatedGroup().getName() + "'.",
+                "Reminders",
+                event.getId(),
+                "CALENDAR_EVENT"
+        );
 
         System.out.println("[Reminder] " + timeFrame + " email sent for event: " + event.getTopic());
     }
@@ -0,0 +1,419 @@
+package com.studyGroup.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.repository.MessageTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold storage for old chat messages: per group, append-only segment files of deflate-compressed
+ * blocks. Each block holds a run of fully hydrated messages (JSON lines) in seq order, so reading
+ * it back needs no joins. Next to each segment, an index file has one fixed-size entry per block
+ * (first seq, last seq, min id, max id, offset, length) - a sparse index that finds the block
+ * holding any seq with a binary search over a few entries kept in memory. Ids are not in seq order
+ * across nodes, so lookups by id check each block's id range instead.
+ * <p>
+ * Written only by {@link ChatArchiver}. A block counts once its index entry is synced; on startup,
+ * bytes past the last indexed block (a write cut short by a crash) are truncated. Blocks are never
+ * rewritten: a deleted archived message keeps its copy here and reads skip it by its tombstone.
+ */
+@Service
+public class ChatArchive {
+
+    private static final int INDEX_ENTRY_BYTES = 48;
+
+    private final ObjectMapper objectMapper;
+    private final MessageTombstoneRepository tombstoneRepository;
+
+    @Value("${chat.archive.dir:./data/chat-archive}")
+    private String archiveDir;
+
+    @Value("${chat.archive.segment-max-bytes:67108864}")
+    private long segmentMaxBytes;
+
+    private Path root;
+    private final Map<Long, GroupArchive> groups = new ConcurrentHashMap<>();
+
+    public ChatArchive(ObjectMapper objectMapper, MessageTombstoneRepository tombstoneRepository) {
+        this.objectMapper = objectMapper;
+        this.tombstoneRepository = tombstoneRepository;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        root = Paths.get(archiveDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).collect(Collectors.toList())) {
+                String name = dir.getFileName().toString();
+                if (name.startsWith("group-")) {
+                    Long groupId = Long.valueOf(name.substring("group-".length()));
+                    groups.put(groupId, GroupArchive.load(dir));
+                }
+            }
+        }
+    }
+
+    /**
+     * Highest archived message seq of a group, or null if nothing is archived.
+     */
+    public Long maxArchivedSeq(Long groupId) {
+        GroupArchive archive = groups.get(groupId);
+        if (archive == null || archive.blocks.isEmpty()) {
+            return null;
+        }
+        return archive.blocks.get(archive.blocks.size() - 1).lastSeq;
+    }
+
+    /**
+     * Appends one block. Messages must be in seq order and newer than everything already archived.
+     */
+    public synchronized void append(Long groupId, List<ChatMessageDTO> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Long maxSeq = maxArchivedSeq(groupId);
+        if (maxSeq != null && messages.get(0).getSeq() <= maxSeq) {
+            throw new IllegalArgumentException("Archive blocks must be appended in seq order");
+        }
+        try {
+            GroupArchive archive = groups.get(groupId);
+            if (archive == null) {
+                Path dir = Files.createDirectories(root.resolve("group-" + groupId));
+                archive = GroupArchive.load(dir);
+                groups.put(groupId, archive);
+            }
+            long minId = messages.stream().mapToLong(ChatMessageDTO::getMessageId).min().getAsLong();
+            long maxId = messages.stream().mapToLong(ChatMessageDTO::getMessageId).max().getAsLong();
+            archive.append(encode(messages), messages.get(0).getSeq(), messages.get(messages.size() - 1).getSeq(),
+                    minId, maxId, messages.size(), segmentMaxBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to chat archive of group " + groupId, e);
+        }
+    }
+
+    /**
+     * Up to {@code limit} archived messages older than {@code beforeSeq} (or the newest, if null), newest first.
+     */
+    public List<ChatMessageDTO> readBefore(Long groupId, Long beforeSeq, int limit) {
+        GroupArchive archive = groups.get(groupId);
+        List<ChatMessageDTO> result = new ArrayList<>();
+        if (archive == null) {
+            return result;
+        }
+        List<Block> blocks = archive.blocks;
+        Set<Long> deleted = deletedIds(groupId, blocks);
+        int i = beforeSeq == null ? blocks.size() - 1 : lastBlockStartingBefore(blocks, beforeSeq);
+        for (; i >= 0 && result.size() < limit; i--) {
+            List<ChatMessageDTO> messages = read(archive, blocks.get(i));
+            for (int j = messages.size() - 1; j >= 0 && result.size() < limit; j--) {
+                if ((beforeSeq == null || messages.get(j).getSeq() < beforeSeq)
+                        && !deleted.contains(messages.get(j).getMessageId())) {
+                    result.add(messages.get(j));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} archived messages newer than {@code afterSeq}, oldest first.
+     */
+    public List<ChatMessageDTO> readAfter(Long groupId, Long afterSeq, int limit) {
+        GroupArchive archive = groups.get(groupId);
+        List<ChatMessageDTO> result = new ArrayList<>();
+        if (archive == null) {
+            return result;
+        }
+        List<Block> blocks = archive.blocks;
+        Set<Long> deleted = deletedIds(groupId, blocks);
+        int i = Math.max(0, lastBlockStartingBefore(blocks, afterSeq + 1));
+        for (; i < blocks.size() && result.size() < limit; i++) {
+            for (ChatMessageDTO message : read(archive, blocks.get(i))) {
+                if (message.getSeq() > afterSeq && result.size() < limit && !deleted.contains(message.getMessageId())) {
+                    result.add(message);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The archived messages among {@code ids}; each block is decompressed at most once.
+     */
+    public List<ChatMessageDTO> readByIds(Long groupId, Collection<Long> ids) {
+        GroupArchive archive = groups.get(groupId);
+        List<ChatMessageDTO> result = new ArrayList<>();
+        if (archive == null || ids.isEmpty()) {
+            return result;
+        }
+        List<Block> blocks = archive.blocks;
+        List<Block> matching = new ArrayList<>();
+        for (Block block : blocks) {
+            if (ids.stream().anyMatch(id -> id >= block.minId && id <= block.maxId)) {
+                matching.add(block);
+            }
+        }
+        if (matching.isEmpty()) {
+            return result;
+        }
+        Set<Long> deleted = deletedIds(groupId, blocks);
+        for (Block block : matching) {
+            for (ChatMessageDTO message : read(archive, block)) {
+                if (ids.contains(message.getMessageId()) && !deleted.contains(message.getMessageId())) {
+                    result.add(message);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Streams every archived message of a group, oldest first.
+     */
+    public void forEach(Long groupId, Consumer<ChatMessageDTO> consumer) {
+        GroupArchive archive = groups.get(groupId);
+        if (archive == null) {
+            return;
+        }
+        List<Block> blocks = archive.blocks;
+        Set<Long> deleted = deletedIds(groupId, blocks);
+        for (Block block : blocks) {
+            for (ChatMessageDTO message : read(archive, block)) {
+                if (!deleted.contains(message.getMessageId())) {
+                    consumer.accept(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ids in the most recently written block, whose rows may still be live if the archiver
+     * stopped between writing the block and deleting the rows.
+     */
+    public List<Long> lastBlockIds(Long groupId) {
+        GroupArchive archive = groups.get(groupId);
+        if (archive == null || archive.blocks.isEmpty()) {
+            return List.of();
+        }
+        return read(archive, archive.blocks.get(archive.blocks.size() - 1)).stream()
+                .map(ChatMessageDTO::getMessageId)
+                .collect(Collectors.toList());
+    }
+
+    // Ids of archived messages deleted since they were archived; one indexed query per read
+    private Set<Long> deletedIds(Long groupId, List<Block> blocks) {
+        if (blocks.isEmpty()) {
+            return Set.of();
+        }
+        long maxId = blocks.stream().mapToLong(Block::maxId).max().getAsLong();
+        return new HashSet<>(tombstoneRepository.findDeletedMessageIds(groupId, maxId));
+    }
+
+    // Index of the last block whose first seq is below {@code seq}, or -1
+    private static int lastBlockStartingBefore(List<Block> blocks, long seq) {
+        int lo = 0;
+        int hi = blocks.size() - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blocks.get(mid).firstSeq < seq) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private List<ChatMessageDTO> read(GroupArchive archive, Block block) {
+        try {
+            return decode(archive.readBytes(block));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read chat archive in " + archive.dir.getFileName(), e);
+        }
+    }
+
+    private byte[] encode(List<ChatMessageDTO> messages) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        for (ChatMessageDTO message : messages) {
+            json.write(objectMapper.writeValueAsBytes(message));
+            json.write('\n');
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(json.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private List<ChatMessageDTO> decode(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try {
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated archive block");
+                }
+                json.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+        List<ChatMessageDTO> messages = new ArrayList<>();
+        for (String line : json.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                messages.add(objectMapper.readValue(line, ChatMessageDTO.class));
+            }
+        }
+        return messages;
+    }
+
+    private record Block(String segment, long firstSeq, long lastSeq, long minId, long maxId, long offset, int length) {
+    }
+
+    private static final class GroupArchive {
+        private final Path dir;
+        // Replaced, never mutated, so readers can use it without locking
+        private volatile List<Block> blocks;
+        private String currentSegment;
+        private long currentSize;
+
+        private GroupArchive(Path dir, List<Block> blocks) {
+            this.dir = dir;
+            this.blocks = blocks;
+            if (!blocks.isEmpty()) {
+                Block last = blocks.get(blocks.size() - 1);
+                currentSegment = last.segment;
+                currentSize = last.offset + last.length;
+            }
+        }
+
+        static GroupArchive load(Path dir) throws IOException {
+            List<Path> indexes;
+            try (Stream<Path> files = Files.list(dir)) {
+                indexes = files.filter(p -> p.getFileName().toString().endsWith(".idx")).sorted().collect(Collectors.toList());
+            }
+            List<Block> blocks = new ArrayList<>();
+            for (Path index : indexes) {
+                String segment = index.getFileName().toString().replace(".idx", ".seg");
+                long end = 0;
+                try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    long complete = channel.size() - channel.size() % INDEX_ENTRY_BYTES;
+                    channel.truncate(complete);
+                    ByteBuffer buffer = ByteBuffer.allocate((int) complete);
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // keep reading
+                    }
+                    buffer.flip();
+                    while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+                        Block block = new Block(segment, buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                                buffer.getLong(), buffer.getLong(), buffer.getInt());
+                        buffer.getInt(); // message count, informational
+                        blocks.add(block);
+                        end = block.offset + block.length;
+                    }
+                }
+                Path segmentPath = dir.resolve(segment);
+                if (Files.exists(segmentPath) && Files.size(segmentPath) > end) {
+                    try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+                        channel.truncate(end);
+                    }
+                }
+            }
+            return new GroupArchive(dir, Collections.unmodifiableList(blocks));
+        }
+
+        void append(byte[] data, long firstSeq, long lastSeq, long minId, long maxId, int count,
+                    long segmentMaxBytes) throws IOException {
+            if (currentSegment == null || currentSize >= segmentMaxBytes) {
+                // Named by position rather than seq (older messages may have negative seqs), so names sort in order
+                currentSegment = String.format("%019d.seg", blocks.size());
+                currentSize = 0;
+            }
+            try (FileChannel channel = FileChannel.open(dir.resolve(currentSegment),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.truncate(currentSize);
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                long position = currentSize;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                channel.force(false);
+            }
+
+            Block block = new Block(currentSegment, firstSeq, lastSeq, minId, maxId, currentSize, data.length);
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+            entry.putLong(firstSeq).putLong(lastSeq).putLong(minId).putLong(maxId)
+                    .putLong(block.offset).putInt(block.length).putInt(count).flip();
+            try (FileChannel channel = FileChannel.open(dir.resolve(currentSegment.replace(".seg", ".idx")),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+                channel.force(false);
+            }
+
+            currentSize += data.length;
+            List<Block> updated = new ArrayList<>(blocks);
+            updated.add(block);
+            blocks = Collections.unmodifiableList(updated);
+        }
+
+        byte[] readBytes(Block block) throws IOException {
+            try (FileChannel channel = FileChannel.open(dir.resolve(block.segment), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(block.length);
+                long position = block.offset;
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, position);
+                    if (n < 0) {
+                        throw new IOException("Archive segment " + block.segment + " is shorter than its index");
+                    }
+                    position += n;
+                }
+                return buffer.array();
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.config.WebSocketConfig;
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.model.GroupMessage;
+import com.studyGroup.backend.repository.GroupMessageRepository;
+import com.studyGroup.backend.repository.GroupRepository;
+import com.studyGroup.backend.repository.MessageDocumentRepository;
+import com.studyGroup.backend.repository.MessageReplyRepository;
+import com.studyGroup.backend.repository.PinnedMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Moves messages older than {@code chat.archive.max-age-days} out of group_messages into
+ * {@link ChatArchive}, one block per batch: hydrate, append the block (synced), then delete the rows.
+ * If the process stops between the last two steps, the rows of the last block are deleted on the
+ * next run. Messages that other rows still point at - pinned messages, documents, polls and
+ * messages with replies - stay in the table; history reads merge both sources. A group's newest
+ * message always stays too, however old, so its row keeps marking the group's latest seq.
+ * <p>
+ * The archive lives on this node's disk, so archiving only runs with the in-process broker. With
+ * the external broker relay other nodes read the same group_messages table and would lose the rows.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatArchiver {
+
+    private final ChatArchive chatArchive;
+    private final GroupMessageService groupMessageService;
+    private final GroupRepository groupRepository;
+    private final GroupMessageRepository messageRepository;
+    private final MessageReplyRepository messageReplyRepository;
+    private final PinnedMessageRepository pinnedMessageRepository;
+    private final MessageDocumentRepository messageDocumentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Groups whose last block has been checked for undeleted rows since startup
+    private final Set<Long> recoveredGroups = new HashSet<>();
+    private boolean relaySkipLogged;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.archive.max-age-days:180}")
+    private long maxAgeDays;
+
+    @Value("${chat.archive.block-size:256}")
+    private int blockSize;
+
+    @Scheduled(initialDelayString = "${chat.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${chat.archive.interval-ms:3600000}")
+    public void archiveOldMessages() {
+        if (maxAgeDays <= 0) {
+            return;
+        }
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            if (!relaySkipLogged) {
+                relaySkipLogged = true;
+                System.out.println("[ChatArchiver] Broker relay mode: the archive is node-local, so messages stay in group_messages");
+            }
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        int archived = 0;
+        for (Long groupId : groupRepository.findAllGroupIds()) {
+            try {
+                archived += archiveGroup(groupId, cutoff);
+            } catch (RuntimeException e) {
+                System.err.println("[ChatArchiver] Archiving group " + groupId + " failed: " + e.getMessage());
+            }
+        }
+        if (archived > 0) {
+            System.out.println("[ChatArchiver] Archived " + archived + " messages older than " + cutoff);
+        }
+    }
+
+    private int archiveGroup(Long groupId, LocalDateTime cutoff) {
+        if (recoveredGroups.add(groupId)) {
+            List<Long> lastBlock = chatArchive.lastBlockIds(groupId);
+            if (!lastBlock.isEmpty()) {
+                deleteRows(lastBlock);
+            }
+        }
+
+        List<GroupMessage> newest = messageRepository.findByGroup_GroupIdOrderBySeqDesc(groupId, PageRequest.of(0, 1));
+        if (newest.isEmpty()) {
+            return 0;
+        }
+        long newestSeq = newest.get(0).getSeq();
+
+        int archived = 0;
+        long afterSeq = Long.MIN_VALUE;
+        while (true) {
+            long cursor = afterSeq;
+            Batch batch = transactionTemplate.execute(status -> nextBatch(groupId, cursor, newestSeq, cutoff));
+            if (batch == null) {
+                return archived;
+            }
+            if (!batch.messages.isEmpty()) {
+                chatArchive.append(groupId, batch.messages);
+                deleteRows(batch.messages.stream().map(ChatMessageDTO::getMessageId).collect(Collectors.toList()));
+                archived += batch.messages.size();
+            }
+            if (batch.reachedCutoff) {
+                return archived;
+            }
+            afterSeq = batch.lastScannedSeq;
+        }
+    }
+
+    /**
+     * The next {@code blockSize} rows after {@code afterSeq}, hydrated, minus the ones that must stay live.
+     * Scanning stops at the cutoff or at {@code newestSeq}. Null when there is nothing left to scan.
+     */
+    private Batch nextBatch(Long groupId, long afterSeq, long newestSeq, LocalDateTime cutoff) {
+        List<GroupMessage> rows = messageRepository.findByGroup_GroupIdAndSeqGreaterThanOrderBySeqAsc(
+                groupId, afterSeq, PageRequest.of(0, blockSize));
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        Long maxArchived = chatArchive.maxArchivedSeq(groupId);
+        List<GroupMessage> old = new ArrayList<>();
+        boolean reachedCutoff = rows.size() < blockSize;
+        for (GroupMessage row : rows) {
+            if (!row.getTimestamp().isBefore(cutoff) || row.getSeq() >= newestSeq) {
+                reachedCutoff = true;
+                break;
+            }
+            // Rows below the archive's high-water mark were kept live earlier; blocks only grow upwards
+            if (!"POLL".equalsIgnoreCase(row.getMessageType()) && (maxArchived == null || row.getSeq() > maxArchived)) {
+                old.add(row);
+            }
+        }
+
+        if (!old.isEmpty()) {
+            List<Long> ids = old.stream().map(GroupMessage::getId).collect(Collectors.toList());
+            Set<Long> keep = new HashSet<>(messageReplyRepository.findRepliedToIds(ids));
+            keep.addAll(pinnedMessageRepository.findPinnedIds(ids));
+            keep.addAll(messageDocumentRepository.findMessageIdsIn(ids));
+            old.removeIf(row -> keep.contains(row.getId()));
+        }
+
+        return new Batch(groupMessageService.toChatMessageDTOs(old), rows.get(rows.size() - 1).getSeq(), reachedCutoff);
+    }
+
+    private void deleteRows(List<Long> ids) {
+        transactionTemplate.executeWithoutResult(status -> {
+            messageReplyRepository.deleteByReplyMessageIdIn(ids);
+            messageRepository.deleteByIdIn(ids);
+        });
+    }
+
+    private record Batch(List<ChatMessageDTO> messages, long lastScannedSeq, boolean reachedCutoff) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recently seen client message ids, per group, so a resent chat frame (SockJS retry, client
+ * pipelining) maps back to the message it already created instead of inserting another row.
+ * Keys are sender + client id; each group keeps at most {@code chat.dedup.window-size} of them,
+ * for at most {@code chat.dedup.ttl-seconds}. Memory only - the write-behind log re-seeds the
+ * window for messages that were in flight at a restart. The window is per node, so with the
+ * external broker relay a resend only dedupes when it reaches the node that took the first send.
+ */
+@Service
+public class ChatDedupWindow {
+
+    @Value("${chat.dedup.window-size:1024}")
+    private int windowSize;
+
+    @Value("${chat.dedup.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<Long, GroupWindow> groups = new ConcurrentHashMap<>();
+
+    /**
+     * The result of an earlier send with this client id, or null if it hasn't been seen (or has
+     * dropped out of the window). The future may still be pending while that send is being logged.
+     */
+    public CompletableFuture<ChatMessageDTO> find(Long groupId, Integer senderId, String clientMessageId) {
+        if (clientMessageId == null) {
+            return null;
+        }
+        GroupWindow window = groups.get(groupId);
+        if (window == null) {
+            return null;
+        }
+        synchronized (window) {
+            Seen seen = window.keys.get(key(senderId, clientMessageId));
+            return seen == null || seen.expiresAt < System.currentTimeMillis() ? null : seen.result;
+        }
+    }
+
+    /**
+     * Registers a new send. Returns the earlier result if the id was already taken, otherwise null.
+     * A send that fails is forgotten again, so the client's retry can go through.
+     */
+    public CompletableFuture<ChatMessageDTO> claim(Long groupId, Integer senderId, String clientMessageId,
+                                                   CompletableFuture<ChatMessageDTO> result) {
+        if (clientMessageId == null) {
+            return null;
+        }
+        String key = key(senderId, clientMessageId);
+        while (true) {
+            GroupWindow window = groups.computeIfAbsent(groupId, k -> new GroupWindow(windowSize));
+            synchronized (window) {
+                // Retry if evictExpired() dropped this window between lookup and lock
+                if (groups.get(groupId) != window) {
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                Seen seen = window.keys.get(key);
+                if (seen != null && seen.expiresAt >= now) {
+                    return seen.result;
+                }
+                window.keys.put(key, new Seen(result, now + ttlSeconds * 1000));
+                break;
+            }
+        }
+        result.whenComplete((dto, e) -> {
+            if (e != null) {
+                release(groupId, senderId, clientMessageId, result);
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Records a message that is already saved (log replay, synchronous saves).
+     */
+    public void remember(ChatMessageDTO dto, String clientMessageId) {
+        if (clientMessageId != null) {
+            claim(dto.getGroupId(), dto.getSenderId(), clientMessageId, CompletableFuture.completedFuture(dto));
+        }
+    }
+
+    private void release(Long groupId, Integer senderId, String clientMessageId, CompletableFuture<ChatMessageDTO> result) {
+        GroupWindow window = groups.get(groupId);
+        if (window != null) {
+            synchronized (window) {
+                String key = key(senderId, clientMessageId);
+                Seen seen = window.keys.get(key);
+                if (seen != null && seen.result == result) {
+                    window.keys.remove(key);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        groups.entrySet().removeIf(e -> {
+            synchronized (e.getValue()) {
+                e.getValue().keys.values().removeIf(seen -> seen.expiresAt < now);
+                return e.getValue().keys.isEmpty();
+            }
+        });
+    }
+
+    private static String key(Integer senderId, String clientMessageId) {
+        return senderId + ":" + clientMessageId;
+    }
+
+    private record Seen(CompletableFuture<ChatMessageDTO> result, long expiresAt) {
+    }
+
+    private static final class GroupWindow {
+        // Insertion order; the oldest key is dropped once the window is full
+        private final LinkedHashMap<String, Seen> keys;
+
+        private GroupWindow(int maxSize) {
+            this.keys = new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Seen> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    }
+}
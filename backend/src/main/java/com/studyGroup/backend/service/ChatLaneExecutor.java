@@ -0,0 +1,79 @@
+package com.studyGroup.backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs chat work on a fixed set of single-threaded lanes, one lane per group (by hash). Work for
+ * a group runs in submission order, different groups run in parallel, and a flooded group can
+ * only back up its own lane. Each lane's backlog is published as the {@code chat.lane.queue.depth}
+ * gauge. With {@code chat.lanes.virtual-threads=true} each lane runs on a virtual thread.
+ */
+@Service
+public class ChatLaneExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    public ChatLaneExecutor(MeterRegistry meterRegistry,
+                            @Value("${chat.lanes.count:0}") int laneCount,
+                            @Value("${chat.lanes.virtual-threads:false}") boolean virtualThreads) {
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors() * 2;
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("chat-lane-", 0).factory()
+                : Thread.ofPlatform().name("chat-lane-", 0).daemon(true).factory();
+
+        lanes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            lanes[i] = lane;
+            Gauge.builder("chat.lane.queue.depth", lane, l -> l.getQueue().size())
+                    .tag("lane", String.valueOf(i))
+                    .description("Chat tasks waiting in this lane")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Queues {@code task} on the group's lane. Failures are logged; they don't stop the lane.
+     */
+    public void execute(Long groupId, Runnable task) {
+        lanes[Math.floorMod(groupId.hashCode(), lanes.length)].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("[ChatLane] Task for group " + groupId + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * The group's lane as an {@link Executor}, for async continuations that must keep the
+     * group's order (and stay off the thread that completed the future).
+     */
+    public Executor forGroup(Long groupId) {
+        return task -> execute(groupId, task);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("[ChatLane] Lane did not drain in time, dropping " + lane.getQueue().size() + " task(s)");
+                lane.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.config.WebSocketConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over chat message text (including document file names), one partition
+ * per group. A partition is built from the database on the group's first search and then kept
+ * up to date by {@link #add} and {@link #remove} from the write paths; idle partitions are dropped.
+ * Hits are ranked with BM25 and every query word must match.
+ * <p>
+ * With the external broker relay other nodes write to the same groups without passing through
+ * this index, so partitions are rebuilt once they are older than {@code chat.search.relay-max-age-seconds}.
+ */
+@Service
+public class ChatSearchIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int SNIPPET_CONTEXT = 60;
+
+    @Value("${chat.search.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${chat.search.max-groups:200}")
+    private int maxGroups;
+
+    @Value("${chat.search.relay-max-age-seconds:60}")
+    private long relayMaxAgeSeconds;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    private final Map<Long, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Ranked message ids matching every word of {@code query}, best first. {@code loader} returns
+     * the group's full text (message id to text) and is only called when the partition isn't built.
+     */
+    public Ranked search(Long groupId, String query, int offset, int limit, Supplier<Map<Long, String>> loader) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return new Ranked(0, List.of());
+        }
+        Partition partition = getOrLoad(groupId, loader);
+        synchronized (partition) {
+            partition.lastAccess = System.currentTimeMillis();
+            List<Hit> hits = partition.rank(terms);
+            List<Hit> page = offset >= hits.size()
+                    ? List.of()
+                    : new ArrayList<>(hits.subList(offset, Math.min(hits.size(), offset + limit)));
+            return new Ranked(hits.size(), page);
+        }
+    }
+
+    /**
+     * Indexes a newly written message. Groups without a partition are skipped; they read
+     * the message from the database when the partition is built.
+     */
+    public void add(Long groupId, Long messageId, String text) {
+        Partition partition = partitions.get(groupId);
+        if (partition == null || text == null) {
+            return;
+        }
+        synchronized (partition) {
+            partition.add(messageId, text);
+        }
+    }
+
+    public void remove(Long groupId, Long messageId) {
+        Partition partition = partitions.get(groupId);
+        if (partition == null) {
+            return;
+        }
+        synchronized (partition) {
+            partition.remove(messageId);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictIdleGroups() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000;
+        partitions.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff);
+
+        int excess = partitions.size() - maxGroups;
+        if (excess > 0) {
+            partitions.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList())
+                    .forEach(partitions::remove);
+        }
+    }
+
+    /**
+     * Lower-cased words of {@code text}, in order and without duplicates.
+     */
+    public static List<String> terms(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A piece of {@code text} around the first occurrence of any of {@code terms}.
+     */
+    public static String snippet(String text, List<String> terms) {
+        if (text == null) {
+            return "";
+        }
+        if (text.length() <= SNIPPET_CONTEXT * 2) {
+            return text;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int match = Integer.MAX_VALUE;
+        for (String term : terms) {
+            int at = lower.indexOf(term);
+            if (at >= 0) {
+                match = Math.min(match, at);
+            }
+        }
+        int start = match == Integer.MAX_VALUE ? 0 : Math.max(0, match - SNIPPET_CONTEXT);
+        int end = Math.min(text.length(), start + SNIPPET_CONTEXT * 2);
+        return (start > 0 ? "…" : "") + text.substring(start, end) + (end < text.length() ? "…" : "");
+    }
+
+    private Partition getOrLoad(Long groupId, Supplier<Map<Long, String>> loader) {
+        Partition existing = partitions.get(groupId);
+        if (existing != null && !isStale(existing)) {
+            return awaitLoaded(groupId, existing, loader);
+        }
+
+        // Register before loading so messages written during the load are added, not lost
+        Partition partition = new Partition();
+        boolean registered = existing == null
+                ? partitions.putIfAbsent(groupId, partition) == null
+                : partitions.replace(groupId, existing, partition);
+        if (!registered) {
+            Partition winner = partitions.get(groupId);
+            return winner == null ? getOrLoad(groupId, loader) : awaitLoaded(groupId, winner, loader);
+        }
+        try {
+            Map<Long, String> texts = loader.get();
+            synchronized (partition) {
+                texts.forEach(partition::addIfAbsent);
+            }
+            partition.markReady();
+            return partition;
+        } catch (RuntimeException e) {
+            partitions.remove(groupId, partition);
+            partition.markReady();
+            throw e;
+        }
+    }
+
+    // Waits for another thread's load; if that load failed, tries again from this thread
+    private Partition awaitLoaded(Long groupId, Partition partition, Supplier<Map<Long, String>> loader) {
+        partition.awaitReady();
+        return partitions.get(groupId) == partition ? partition : getOrLoad(groupId, loader);
+    }
+
+    private boolean isStale(Partition partition) {
+        return WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)
+                && partition.builtAt < System.currentTimeMillis() - relayMaxAgeSeconds * 1000;
+    }
+
+    public record Hit(Long messageId, double score) {
+    }
+
+    public record Ranked(int total, List<Hit> hits) {
+    }
+
+    private static final class Partition {
+        // term -> (message id -> occurrences)
+        private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+        private final Map<Long, Doc> docs = new HashMap<>();
+        private long totalLength;
+        private final long builtAt = System.currentTimeMillis();
+        private volatile long lastAccess = System.currentTimeMillis();
+        private boolean ready;
+
+        void addIfAbsent(Long messageId, String text) {
+            if (!docs.containsKey(messageId)) {
+                add(messageId, text);
+            }
+        }
+
+        void add(Long messageId, String text) {
+            remove(messageId);
+            Map<String, Integer> counts = new HashMap<>();
+            int length = 0;
+            for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    counts.merge(token, 1, Integer::sum);
+                    length++;
+                }
+            }
+            counts.forEach((term, count) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(messageId, count));
+            docs.put(messageId, new Doc(counts.keySet().toArray(new String[0]), length));
+            totalLength += length;
+        }
+
+        void remove(Long messageId) {
+            Doc doc = docs.remove(messageId);
+            if (doc == null) {
+                return;
+            }
+            for (String term : doc.terms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(messageId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= doc.length;
+        }
+
+        List<Hit> rank(List<String> terms) {
+            List<Map<Long, Integer>> lists = new ArrayList<>();
+            for (String term : terms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    return List.of();
+                }
+                lists.add(posting);
+            }
+            // Intersect starting from the rarest word
+            lists.sort(Comparator.comparingInt(Map::size));
+            Set<Long> candidates = new LinkedHashSet<>(lists.get(0).keySet());
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(lists.get(i).keySet());
+            }
+
+            int n = docs.size();
+            double avgLength = n == 0 ? 1 : Math.max(1, (double) totalLength / n);
+            List<Hit> hits = new ArrayList<>(candidates.size());
+            for (Long messageId : candidates) {
+                double norm = K1 * (1 - B + B * docs.get(messageId).length / avgLength);
+                double score = 0;
+                for (Map<Long, Integer> posting : lists) {
+                    int tf = posting.get(messageId);
+                    double idf = Math.log(1 + (n - posting.size() + 0.5) / (posting.size() + 0.5));
+                    score += idf * tf * (K1 + 1) / (tf + norm);
+                }
+                hits.add(new Hit(messageId, score));
+            }
+            // Best score first; newer messages win ties
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                    .thenComparing(Hit::messageId, Comparator.reverseOrder()));
+            return hits;
+        }
+
+        synchronized void markReady() {
+            ready = true;
+            notifyAll();
+        }
+
+        synchronized void awaitReady() {
+            while (!ready) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while the search index was loading");
+                }
+            }
+        }
+    }
+
+    private record Doc(String[] terms, int length) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.config.WebSocketConfig;
+import com.studyGroup.backend.dto.ChatHistoryPageDTO;
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.dto.PollOptionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the newest fully-hydrated messages of recently active groups in memory, so opening
+ * a chat or reconnecting doesn't hit the database. Each group's tail is a contiguous window
+ * of the newest {@code chat.tail-cache.size} messages, keyed by seq; pages that reach past it
+ * return null and the caller falls back to the database.
+ * <p>
+ * With the external broker relay other nodes write to the same groups without passing through
+ * this cache, so it stays off in that mode and every read goes to the database.
+ */
+@Service
+public class ChatTailCache {
+
+    @Value("${chat.tail-cache.size:100}")
+    private int capacity;
+
+    @Value("${chat.tail-cache.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${chat.tail-cache.max-groups:1000}")
+    private int maxGroups;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    private final Map<Long, GroupTail> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Serves a history page from the group's tail, loading the tail first if the group isn't cached.
+     * {@code loader} gets the tail size and returns the newest messages (ascending), including any
+     * not yet flushed to the database. Returns null when the page isn't fully covered by the tail.
+     */
+    public ChatHistoryPageDTO readPage(Long groupId, Long beforeSeq, Long afterSeq, int limit,
+                                       IntFunction<List<ChatMessageDTO>> loader) {
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            return null;
+        }
+        GroupTail tail = getOrLoad(groupId, loader);
+        if (tail == null) {
+            return null;
+        }
+        synchronized (tail) {
+            tail.lastAccess = System.currentTimeMillis();
+            if (afterSeq != null) {
+                // Everything newer than the tail's oldest message is in the tail
+                if (tail.hasOlder && (tail.messages.isEmpty() || afterSeq < tail.messages.firstKey())) {
+                    return null;
+                }
+                List<ChatMessageDTO> newer = new ArrayList<>(tail.messages.tailMap(afterSeq, false).values());
+                boolean hasMore = newer.size() > limit;
+                return page(hasMore ? newer.subList(0, limit) : newer, hasMore);
+            }
+
+            NavigableMap<Long, ChatMessageDTO> older = beforeSeq == null
+                    ? tail.messages
+                    : tail.messages.headMap(beforeSeq, false);
+            if (older.size() < limit && tail.hasOlder) {
+                return null;
+            }
+            List<ChatMessageDTO> window = new ArrayList<>(older.values());
+            boolean hasMore = window.size() > limit || tail.hasOlder;
+            return page(window.subList(Math.max(0, window.size() - limit), window.size()), hasMore);
+        }
+    }
+
+    /**
+     * Adds a freshly written message. Groups that aren't cached are left alone; they get
+     * loaded in full on the next read.
+     */
+    public void append(ChatMessageDTO message) {
+        GroupTail tail = tails.get(message.getGroupId());
+        if (tail == null) {
+            return;
+        }
+        synchronized (tail) {
+            tail.messages.put(message.getSeq(), message);
+            trim(tail);
+        }
+    }
+
+    /**
+     * Reflects a vote in the cached poll message. The option list is replaced rather than
+     * mutated, since the same DTO may be serialised concurrently. The total is read while the
+     * group's tail is locked, so concurrent votes can't leave an older total behind.
+     */
+    public void updatePollOption(Long groupId, Long pollId, Long optionId, LongSupplier voteCount) {
+        GroupTail tail = tails.get(groupId);
+        if (tail == null) {
+            return;
+        }
+        synchronized (tail) {
+            long total = voteCount.getAsLong();
+            for (ChatMessageDTO message : tail.messages.values()) {
+                if (pollId.equals(message.getPollId()) && message.getPollOptions() != null) {
+                    message.setPollOptions(message.getPollOptions().stream()
+                            .map(o -> o.getId().equals(optionId)
+                                    ? new PollOptionDTO(o.getId(), o.getOptionText(), total)
+                                    : o)
+                            .collect(Collectors.toList()));
+                }
+            }
+        }
+    }
+
+    public void invalidate(Long groupId) {
+        tails.remove(groupId);
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictIdleGroups() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000;
+        tails.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff);
+
+        int excess = tails.size() - maxGroups;
+        if (excess > 0) {
+            tails.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList())
+                    .forEach(tails::remove);
+        }
+    }
+
+    private GroupTail getOrLoad(Long groupId, IntFunction<List<ChatMessageDTO>> loader) {
+        GroupTail existing = tails.get(groupId);
+        if (existing != null) {
+            return existing.ready ? existing : null;
+        }
+
+        // Register before loading so writes that land during the load are appended, not lost
+        GroupTail tail = new GroupTail();
+        if (tails.putIfAbsent(groupId, tail) != null) {
+            return null;
+        }
+        try {
+            List<ChatMessageDTO> loaded = loader.apply(capacity);
+            synchronized (tail) {
+                for (ChatMessageDTO message : loaded) {
+                    tail.messages.putIfAbsent(message.getSeq(), message);
+                }
+                tail.hasOlder = loaded.size() >= capacity;
+                trim(tail);
+                tail.ready = true;
+            }
+            return tail;
+        } catch (RuntimeException e) {
+            tails.remove(groupId, tail);
+            throw e;
+        }
+    }
+
+    private void trim(GroupTail tail) {
+        while (tail.messages.size() > capacity) {
+            tail.messages.pollFirstEntry();
+            tail.hasOlder = true;
+        }
+    }
+
+    private static ChatHistoryPageDTO page(List<ChatMessageDTO> messages, boolean hasMore) {
+        List<ChatMessageDTO> copy = new ArrayList<>(messages);
+        Long oldestSeq = copy.isEmpty() ? null : copy.get(0).getSeq();
+        Long newestSeq = copy.isEmpty() ? null : copy.get(copy.size() - 1).getSeq();
+        return new ChatHistoryPageDTO(copy, hasMore, oldestSeq, newestSeq);
+    }
+
+    private static final class GroupTail {
+        // seq -> message
+        private final TreeMap<Long, ChatMessageDTO> messages = new TreeMap<>();
+        // true when the group has messages older than the cached window
+        private boolean hasOlder;
+        private volatile boolean ready;
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+}
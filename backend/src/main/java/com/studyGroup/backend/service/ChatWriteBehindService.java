@@ -0,0 +1,585 @@
+package com.studyGroup.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.model.User;
+import com.studyGroup.backend.repository.GroupMessageRepository;
+import com.studyGroup.backend.repository.GroupRepository;
+import com.studyGroup.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind persistence for chat messages sent over STOMP.
+ * <p>
+ * {@link #submit} assigns the message id up front (from {@link IdBlockAllocator}) and queues the
+ * message. A writer thread appends queued messages to a local segment log and fsyncs once per
+ * batch (group commit). Per-group sequence numbers are assigned by the writer too, so they follow log
+ * order; the returned future completes once the batch is synced, so callers broadcast without
+ * waiting for the database. A flusher thread then writes logged messages to group_messages with
+ * multi-row inserts. A segment file is deleted once everything in it is in the database, and any
+ * segment left behind by a crash is replayed on startup, minus messages deleted in the meantime.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatWriteBehindService {
+
+    private static final String INSERT_MESSAGES_PREFIX =
+            "INSERT INTO group_messages (id, group_id, sender_user_id, content, message_type, poll_id, seq, timestamp) VALUES ";
+    private static final String MESSAGE_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MESSAGE_COLUMNS = 8;
+    // Skips the reply link if the original was deleted meanwhile, or if it was already written by an earlier attempt
+    private static final String INSERT_REPLY =
+            "INSERT INTO message_replies (id, reply_message_id, original_message_id, replier_user_id) "
+                    + "SELECT ?, ?, m.id, ? FROM group_messages m WHERE m.id = ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM message_replies r WHERE r.reply_message_id = ?)";
+    private static final String SELECT_EXISTING_IDS = "SELECT id FROM group_messages WHERE id IN";
+    private static final String SELECT_DELETED_IDS = "SELECT message_id FROM group_message_tombstones WHERE message_id IN";
+    private static final int MAX_MESSAGE_TYPE_LENGTH = 10;
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    private final IdBlockAllocator idBlockAllocator;
+    private final ChatDedupWindow chatDedupWindow;
+    private final GroupSequenceAllocator groupSequenceAllocator;
+    private final GroupRepository groupRepository;
+    private final UserRepository userRepository;
+    private final GroupMessageRepository messageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.write-behind.log-dir:./data/chat-wal}")
+    private String logDir;
+
+    @Value("${chat.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.write-behind.segment-max-bytes:8388608}")
+    private long segmentMaxBytes;
+
+    private final BlockingQueue<PendingMessage> appendQueue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<FlushBatch> flushQueue = new LinkedBlockingQueue<>();
+    // Messages accepted but not yet in the database, so deletes and replies can find them
+    private final Map<Long, PendingMessage> pendingById = new ConcurrentHashMap<>();
+    private final Map<Integer, String> senderNames = new ConcurrentHashMap<>();
+    private final Set<Long> knownGroupIds = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private Thread flusherThread;
+    private Path logPath;
+    private long segmentCounter;
+    // Only touched by the writer thread once started
+    private Segment currentSegment;
+
+    @PostConstruct
+    public void start() throws IOException {
+        logPath = Paths.get(logDir).toAbsolutePath().normalize();
+        Files.createDirectories(logPath);
+        replaySegments();
+
+        segmentCounter = System.currentTimeMillis();
+        currentSegment = openSegment();
+        running = true;
+
+        writerThread = new Thread(this::runWriter, "chat-wal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        flusherThread = new Thread(this::runFlusher, "chat-db-flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join();
+        flusherThread.join();
+        currentSegment.seal();
+    }
+
+    /**
+     * Accepts a chat message for persistence. Validation errors are thrown straight away;
+     * the returned future completes with the fully built DTO once the message is durably logged.
+     */
+    public CompletableFuture<ChatMessageDTO> submit(ChatMessageDTO chatMessage) {
+        if (!running) {
+            throw new IllegalStateException("Chat message pipeline is not running");
+        }
+        if (chatMessage.getContent() == null) {
+            throw new RuntimeException("Message content is required");
+        }
+        String messageType = chatMessage.getMessageType() == null ? "TEXT" : chatMessage.getMessageType();
+        if (messageType.length() > MAX_MESSAGE_TYPE_LENGTH) {
+            throw new RuntimeException("Invalid message type");
+        }
+        requireGroup(chatMessage.getGroupId());
+        String senderName = senderName(chatMessage.getSenderId());
+
+        ChatMessageDTO dto = new ChatMessageDTO();
+        dto.setMessageId(idBlockAllocator.nextId(IdBlockAllocator.GROUP_MESSAGES_BLOCK));
+        dto.setGroupId(chatMessage.getGroupId());
+        dto.setSenderId(chatMessage.getSenderId());
+        dto.setSenderName(senderName);
+        dto.setContent(chatMessage.getContent());
+        dto.setTimestamp(LocalDateTime.now());
+        dto.setMessageType(messageType);
+        dto.setClientMessageId(chatMessage.getClientMessageId());
+        if (chatMessage.getReplyToMessageId() != null) {
+            fillReplyPreview(dto, chatMessage.getReplyToMessageId());
+        }
+
+        PendingMessage pending = new PendingMessage(dto);
+        // A resend of a message we already accepted gets the original back instead of a second row
+        CompletableFuture<ChatMessageDTO> earlier = chatDedupWindow.claim(
+                dto.getGroupId(), dto.getSenderId(), dto.getClientMessageId(), pending.logged);
+        if (earlier != null) {
+            return earlier;
+        }
+        pendingById.put(dto.getMessageId(), pending);
+        appendQueue.add(pending);
+        return pending.logged;
+    }
+
+    /**
+     * Messages of a group that are logged (and broadcast) but not yet in the database, oldest first.
+     */
+    public List<ChatMessageDTO> pendingForGroup(Long groupId) {
+        return pendingById.values().stream()
+                .filter(p -> groupId.equals(p.dto.getGroupId()))
+                .filter(p -> p.logged.isDone() && !p.logged.isCompletedExceptionally())
+                .map(p -> p.dto)
+                .sorted(Comparator.comparing(ChatMessageDTO::getSeq))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Blocks until a message accepted by {@link #submit} has been written to the database.
+     * Returns immediately for messages that are not in flight.
+     */
+    public void awaitPersisted(Long messageId) {
+        PendingMessage pending = pendingById.get(messageId);
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.persisted.get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for message to be saved");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("Message is still being saved, please try again");
+        }
+    }
+
+    private void requireGroup(Long groupId) {
+        if (groupId == null) {
+            throw new RuntimeException("Group not found");
+        }
+        if (!knownGroupIds.contains(groupId)) {
+            if (!groupRepository.existsById(groupId)) {
+                throw new RuntimeException("Group not found");
+            }
+            knownGroupIds.add(groupId);
+        }
+    }
+
+    private String senderName(Integer senderId) {
+        if (senderId == null) {
+            throw new RuntimeException("User not found");
+        }
+        String cached = senderNames.get(senderId);
+        if (cached != null) {
+            return cached;
+        }
+        User sender = userRepository.findById(senderId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (sender.getName() != null) {
+            senderNames.put(senderId, sender.getName());
+        }
+        return sender.getName();
+    }
+
+    private void fillReplyPreview(ChatMessageDTO dto, Long originalId) {
+        PendingMessage pendingOriginal = pendingById.get(originalId);
+        if (pendingOriginal != null) {
+            dto.setReplyToMessageId(originalId);
+            dto.setReplyToContent(pendingOriginal.dto.getContent());
+            dto.setReplyToSenderName(pendingOriginal.dto.getSenderName());
+            return;
+        }
+        messageRepository.findWithSenderById(originalId).ifPresent(original -> {
+            dto.setReplyToMessageId(original.getId());
+            dto.setReplyToContent(original.getContent());
+            dto.setReplyToSenderName(original.getSender().getName());
+        });
+    }
+
+    // === Writer: append + fsync per batch ===
+
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>();
+        while (running || !appendQueue.isEmpty()) {
+            try {
+                PendingMessage first = appendQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                appendQueue.drainTo(batch, batchSize - 1);
+                appendToLog(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[ChatWriteBehind] Unexpected writer error: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void appendToLog(List<PendingMessage> batch) {
+        try {
+            assignSequences(batch);
+        } catch (RuntimeException e) {
+            System.err.println("[ChatWriteBehind] Could not assign sequence numbers: " + e.getMessage());
+            fail(batch, e);
+            return;
+        }
+
+        Segment segment = currentSegment;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (PendingMessage pending : batch) {
+                bytes.write(objectMapper.writeValueAsBytes(pending.dto));
+                bytes.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                segment.channel.write(buffer);
+            }
+            segment.channel.force(false);
+            segment.size += bytes.size();
+        } catch (IOException e) {
+            System.err.println("[ChatWriteBehind] Could not append to chat log: " + e.getMessage());
+            fail(batch, e);
+            return;
+        }
+
+        segment.batchQueued();
+        flushQueue.add(new FlushBatch(segment, new ArrayList<>(batch)));
+        for (PendingMessage pending : batch) {
+            pending.logged.complete(pending.dto);
+        }
+
+        if (segment.size >= segmentMaxBytes) {
+            try {
+                currentSegment = openSegment();
+                segment.seal();
+            } catch (IOException e) {
+                System.err.println("[ChatWriteBehind] Could not roll chat log segment: " + e.getMessage());
+            }
+        }
+    }
+
+    // One reservation per group in the batch, in queue order
+    private void assignSequences(List<PendingMessage> batch) {
+        Map<Long, List<PendingMessage>> byGroup = batch.stream()
+                .collect(Collectors.groupingBy(p -> p.dto.getGroupId(), LinkedHashMap::new, Collectors.toList()));
+        byGroup.forEach((groupId, messages) -> {
+            long seq = groupSequenceAllocator.reserve(groupId, messages.size());
+            for (PendingMessage pending : messages) {
+                pending.dto.setSeq(seq++);
+            }
+        });
+    }
+
+    private void fail(List<PendingMessage> batch, Exception e) {
+        for (PendingMessage pending : batch) {
+            pendingById.remove(pending.dto.getMessageId());
+            pending.logged.completeExceptionally(e);
+            pending.persisted.completeExceptionally(e);
+        }
+    }
+
+    // === Flusher: group-committed multi-row inserts ===
+
+    private void runFlusher() {
+        List<FlushBatch> batches = new ArrayList<>();
+        while (running || writerThread.isAlive() || !flushQueue.isEmpty()) {
+            try {
+                FlushBatch first = flushQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batches.add(first);
+                flushQueue.drainTo(batches);
+
+                List<PendingMessage> messages = new ArrayList<>();
+                for (FlushBatch batch : batches) {
+                    messages.addAll(batch.messages);
+                }
+                boolean persisted = persist(messages.stream().map(m -> m.dto).collect(Collectors.toList()));
+                for (PendingMessage message : messages) {
+                    pendingById.remove(message.dto.getMessageId());
+                    message.persisted.complete(null);
+                }
+                // A segment that could not be flushed stays on disk and is replayed on the next start
+                if (persisted) {
+                    for (FlushBatch batch : batches) {
+                        batch.segment.batchFlushed();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[ChatWriteBehind] Unexpected flusher error: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                batches.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts the messages, retrying with backoff while the database is unavailable.
+     * Rows that violate a constraint (e.g. the group was deleted) are dropped one by one
+     * so a single bad row can't wedge the pipeline. Returns false only if shutdown gave up.
+     */
+    private boolean persist(List<ChatMessageDTO> messages) {
+        long backoffMs = 100;
+        int attempts = 0;
+        while (true) {
+            try {
+                try {
+                    insertMessages(messages);
+                } catch (DataIntegrityViolationException e) {
+                    insertIndividually(messages);
+                }
+                return true;
+            } catch (DataAccessException | TransactionException e) {
+                attempts++;
+                if (!running && attempts >= 3) {
+                    System.err.println("[ChatWriteBehind] Giving up flush during shutdown, messages kept in log: " + e.getMessage());
+                    return false;
+                }
+                System.err.println("[ChatWriteBehind] Flush failed (attempt " + attempts + "), retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void insertIndividually(List<ChatMessageDTO> messages) {
+        for (ChatMessageDTO message : messages) {
+            try {
+                insertMessages(List.of(message));
+            } catch (DataIntegrityViolationException e) {
+                System.err.println("[ChatWriteBehind] Dropping message " + message.getMessageId()
+                        + " for group " + message.getGroupId() + ": " + e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    private void insertMessages(List<ChatMessageDTO> messages) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<ChatMessageDTO> chunk : Lists.partition(messages, batchSize)) {
+                StringBuilder sql = new StringBuilder(INSERT_MESSAGES_PREFIX);
+                List<Object> args = new ArrayList<>(chunk.size() * MESSAGE_COLUMNS);
+                for (int i = 0; i < chunk.size(); i++) {
+                    ChatMessageDTO m = chunk.get(i);
+                    if (i > 0) {
+                        sql.append(", ");
+                    }
+                    sql.append(MESSAGE_ROW);
+                    args.add(m.getMessageId());
+                    args.add(m.getGroupId());
+                    args.add(m.getSenderId());
+                    args.add(m.getContent());
+                    args.add(m.getMessageType());
+                    args.add(m.getPollId());
+                    args.add(m.getSeq());
+                    args.add(m.getTimestamp());
+                }
+                jdbcTemplate.update(sql.toString(), args.toArray());
+            }
+
+            List<Object[]> replyArgs = messages.stream()
+                    .filter(m -> m.getReplyToMessageId() != null)
+                    .map(m -> new Object[] { idBlockAllocator.nextId(IdBlockAllocator.MESSAGE_REPLIES_BLOCK),
+                            m.getMessageId(), m.getSenderId(), m.getReplyToMessageId(), m.getMessageId() })
+                    .collect(Collectors.toList());
+            if (!replyArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_REPLY, replyArgs);
+            }
+        });
+    }
+
+    // === Segments and crash replay ===
+
+    private Segment openSegment() throws IOException {
+        Path path = logPath.resolve(String.format("segment-%019d.log", segmentCounter++));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return new Segment(path, channel);
+    }
+
+    private void replaySegments() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(logPath)) {
+            segments = files
+                    .filter(p -> p.getFileName().toString().startsWith("segment-"))
+                    .filter(p -> p.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        List<ChatMessageDTO> logged = new ArrayList<>();
+        for (Path segment : segments) {
+            for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    logged.add(objectMapper.readValue(line, ChatMessageDTO.class));
+                } catch (JsonProcessingException e) {
+                    // A torn write at crash time; that batch was never fsync'd, so it was never acknowledged
+                    System.err.println("[ChatWriteBehind] Skipping unreadable log entry in " + segment.getFileName());
+                }
+            }
+        }
+
+        List<Long> ids = logged.stream().map(ChatMessageDTO::getMessageId).collect(Collectors.toList());
+        Set<Long> existing = findIds(SELECT_EXISTING_IDS, ids);
+        // A segment outlives the flush of its batches until it is sealed, so it can still hold messages deleted since
+        Set<Long> deleted = findIds(SELECT_DELETED_IDS, ids);
+        List<ChatMessageDTO> missing = logged.stream()
+                .filter(m -> !existing.contains(m.getMessageId()) && !deleted.contains(m.getMessageId()))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty() && !persist(missing)) {
+            throw new IllegalStateException("Could not replay chat log from " + logPath);
+        }
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        // Clients may still be retrying sends that were in flight when we stopped
+        logged.forEach(m -> chatDedupWindow.remember(m, m.getClientMessageId()));
+        System.out.println("[ChatWriteBehind] Replayed " + missing.size() + " unsaved messages from "
+                + segments.size() + " log segment(s)");
+    }
+
+    private Set<Long> findIds(String select, List<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        for (List<Long> chunk : Lists.partition(ids, 1000)) {
+            String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(", "));
+            found.addAll(jdbcTemplate.queryForList(select + " (" + placeholders + ")", Long.class, chunk.toArray()));
+        }
+        return found;
+    }
+
+    private static final class PendingMessage {
+        private final ChatMessageDTO dto;
+        private final CompletableFuture<ChatMessageDTO> logged = new CompletableFuture<>();
+        private final CompletableFuture<Void> persisted = new CompletableFuture<>();
+
+        private PendingMessage(ChatMessageDTO dto) {
+            this.dto = dto;
+        }
+    }
+
+    private record FlushBatch(Segment segment, List<PendingMessage> messages) {
+    }
+
+    /**
+     * A log file. It can be deleted once it is sealed (no more appends) and every
+     * batch written to it has reached the database.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private int outstandingBatches;
+        private boolean sealed;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        synchronized void batchQueued() {
+            outstandingBatches++;
+        }
+
+        synchronized void batchFlushed() {
+            outstandingBatches--;
+            deleteIfDone();
+        }
+
+        synchronized void seal() {
+            sealed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("[ChatWriteBehind] Could not close " + path.getFileName() + ": " + e.getMessage());
+            }
+            deleteIfDone();
+        }
+
+        private void deleteIfDone() {
+            if (sealed && outstandingBatches == 0) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.err.println("[ChatWriteBehind] Could not delete " + path.getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
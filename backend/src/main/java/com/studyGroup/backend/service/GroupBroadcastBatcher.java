@@ -0,0 +1,122 @@
+package com.studyGroup.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes chat frames to /topic/group/{id}, optionally coalescing bursts. With
+ * {@code chat.broadcast.batching.enabled=true}, a frame for a group that sent nothing during the last
+ * window goes out immediately (a quiet group sees no extra latency); frames that arrive within the
+ * window after it are held and sent together as one JSON array when the window ends. Clients with
+ * batching enabled must accept both a single object and an array on the group topic.
+ * <p>
+ * The window depends on how many sessions are subscribed to the group here:
+ * {@code chat.broadcast.batching.windows=20:5,100:15} means 5 ms from 20 sessions, 15 ms from 100,
+ * and no batching below 20.
+ */
+@Service
+public class GroupBroadcastBatcher {
+
+    private final StompPublisher stompPublisher;
+    private final PresenceRegistry presenceRegistry;
+    private final boolean enabled;
+    // minimum session count -> window in ms
+    private final TreeMap<Integer, Long> windows = new TreeMap<>();
+    private final Map<Long, GroupBatch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("broadcast-batch").daemon(true).factory());
+
+    public GroupBroadcastBatcher(StompPublisher stompPublisher, PresenceRegistry presenceRegistry,
+                                 @Value("${chat.broadcast.batching.enabled:false}") boolean enabled,
+                                 @Value("${chat.broadcast.batching.windows:20:5,100:15}") String windows) {
+        this.stompPublisher = stompPublisher;
+        this.presenceRegistry = presenceRegistry;
+        this.enabled = enabled;
+        for (String tier : windows.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length != 2) {
+                throw new RuntimeException("Invalid chat.broadcast.batching.windows entry: " + tier);
+            }
+            this.windows.put(Integer.parseInt(parts[0].trim()), Long.parseLong(parts[1].trim()));
+        }
+    }
+
+    public void publish(Long groupId, Object payload) {
+        String destination = "/topic/group/" + groupId;
+        long windowMs = enabled ? windowFor(groupId) : 0;
+        if (windowMs <= 0) {
+            stompPublisher.publish(destination, payload);
+            return;
+        }
+
+        GroupBatch batch = batches.computeIfAbsent(groupId, k -> new GroupBatch());
+        synchronized (batch) {
+            long now = System.currentTimeMillis();
+            if (batch.pending.isEmpty() && now - batch.lastSentAt >= windowMs) {
+                // Sent while holding the lock so a flush can't overtake it
+                batch.lastSentAt = now;
+                stompPublisher.publish(destination, payload);
+                return;
+            }
+            batch.pending.add(payload);
+            if (batch.pending.size() == 1) {
+                long delay = Math.max(0, batch.lastSentAt + windowMs - now);
+                flusher.schedule(() -> flush(groupId, batch), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush(Long groupId, GroupBatch batch) {
+        synchronized (batch) {
+            if (batch.pending.isEmpty()) {
+                return;
+            }
+            List<Object> frames = batch.pending;
+            batch.pending = new ArrayList<>();
+            batch.lastSentAt = System.currentTimeMillis();
+            try {
+                stompPublisher.publish("/topic/group/" + groupId, frames.size() == 1 ? frames.get(0) : frames);
+            } catch (RuntimeException e) {
+                System.err.println("[BroadcastBatcher] Flush for group " + groupId + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private long windowFor(Long groupId) {
+        Map.Entry<Integer, Long> tier = windows.floorEntry(presenceRegistry.sessionCount(groupId));
+        return tier == null ? 0 : tier.getValue();
+    }
+
+    // Drops state for groups that have been quiet for a minute
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - 60000;
+        batches.entrySet().removeIf(e -> {
+            synchronized (e.getValue()) {
+                return e.getValue().pending.isEmpty() && e.getValue().lastSentAt < cutoff;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        batches.forEach(this::flush);
+    }
+
+    private static final class GroupBatch {
+        private List<Object> pending = new ArrayList<>();
+        private long lastSentAt;
+    }
+}
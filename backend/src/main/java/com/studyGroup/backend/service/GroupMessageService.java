@@ -1,30 +1,85 @@
 package com.studyGroup.backend.service;
 
+import com.studyGroup.backend.dto.ChatHistoryPageDTO;
 import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.dto.ChatResyncDTO;
+import com.studyGroup.backend.dto.ChatSearchHitDTO;
+import com.studyGroup.backend.dto.ChatSearchPageDTO;
+import com.studyGroup.backend.dto.PollOptionDTO;
+import com.studyGroup.backend.dto.PollResultDTO;
 import com.studyGroup.backend.model.Group;
 import com.studyGroup.backend.model.GroupMessage;
+import com.studyGroup.backend.model.MessageTombstone;
+import com.studyGroup.backend.model.Poll;
+import com.studyGroup.backend.model.PollOption;
 import com.studyGroup.backend.model.User;
 import com.studyGroup.backend.repository.GroupMessageRepository;
 import com.studyGroup.backend.repository.GroupRepository;
+import com.studyGroup.backend.repository.MessageDocumentRepository;
+import com.studyGroup.backend.repository.MessageReplyRepository;
+import com.studyGroup.backend.repository.MessageTombstoneRepository;
+import com.studyGroup.backend.repository.PollOptionRepository;
+import com.studyGroup.backend.repository.PollRepository;
 import com.studyGroup.backend.repository.UserRepository;
+import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class GroupMessageService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    // Keeps IN lists bounded when the legacy full-history endpoint hydrates a very large group
+    private static final int IN_CLAUSE_CHUNK = 1000;
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    public static final int MAX_SEARCH_PAGE_SIZE = 50;
+    // Rows per keyset query when a group's search partition is built
+    private static final int SEARCH_LOAD_CHUNK = 1000;
+
     private final GroupMessageRepository messageRepository;
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
-    private final com.studyGroup.backend.repository.MessageReplyRepository messageReplyRepository;
+    private final MessageReplyRepository messageReplyRepository;
+    private final PollOptionRepository pollOptionRepository;
+    private final PollRepository pollRepository;
+    private final MessageTombstoneRepository tombstoneRepository;
+    private final ChatWriteBehindService chatWriteBehindService;
+    private final ChatTailCache chatTailCache;
+    private final GroupSequenceAllocator groupSequenceAllocator;
+    private final ChatSearchIndex chatSearchIndex;
+    private final MessageDocumentRepository messageDocumentRepository;
+    private final ChatArchive chatArchive;
+    private final ChatDedupWindow chatDedupWindow;
+    private final PollVoteCounter pollVoteCounter;
 
+    /**
+     * Saves a message directly, bypassing the write-behind log. A resend with a client id already
+     * seen gets the original message's future back, so the caller never waits for a send still in flight.
+     */
     @Transactional
-    public GroupMessage saveMessage(ChatMessageDTO chatMessage) {
+    public CompletableFuture<ChatMessageDTO> saveMessage(ChatMessageDTO chatMessage) {
+        CompletableFuture<ChatMessageDTO> earlier = chatDedupWindow.find(
+                chatMessage.getGroupId(), chatMessage.getSenderId(), chatMessage.getClientMessageId());
+        if (earlier != null) {
+            return earlier;
+        }
+
         Group group = groupRepository.findById(chatMessage.getGroupId())
             .orElseThrow(() -> new RuntimeException("Group not found"));
             
@@ -33,7 +88,10 @@ public class GroupMessageService {
 
         GroupMessage message = new GroupMessage(group, sender, chatMessage.getContent());
         message.setMessageType(chatMessage.getMessageType());
+        message.setSeq(groupSequenceAllocator.next(group.getGroupId()));
         GroupMessage saved = messageRepository.save(message);
+        chatTailCache.invalidate(chatMessage.getGroupId());
+        chatSearchIndex.add(group.getGroupId(), saved.getId(), saved.getContent());
 
         // If this message is a reply to another message, create a MessageReply record
         if (chatMessage.getReplyToMessageId() != null) {
@@ -47,32 +105,398 @@ public class GroupMessageService {
             });
         }
 
-        return saved;
+        ChatMessageDTO dto = toChatMessageDTOs(List.of(saved)).get(0);
+        if (chatMessage.getClientMessageId() != null) {
+            dto.setClientMessageId(chatMessage.getClientMessageId());
+            chatDedupWindow.remember(dto, chatMessage.getClientMessageId());
+        }
+        return CompletableFuture.completedFuture(dto);
     }
 
     public List<GroupMessage> getGroupMessages(Long groupId) {
         return messageRepository.findByGroup_GroupIdOrderByTimestampAsc(groupId);
     }
 
+    /**
+     * A group's whole history as DTOs, archived messages included, oldest first.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessageDTO> getAllMessages(Long groupId) {
+        List<ChatMessageDTO> messages = new ArrayList<>();
+        chatArchive.forEach(groupId, messages::add);
+        Set<Long> archivedIds = messages.stream().map(ChatMessageDTO::getMessageId).collect(Collectors.toSet());
+        for (ChatMessageDTO live : toChatMessageDTOs(getGroupMessages(groupId))) {
+            if (!archivedIds.contains(live.getMessageId())) {
+                messages.add(live);
+            }
+        }
+        messages.sort(Comparator.comparing(ChatMessageDTO::getTimestamp));
+        return messages;
+    }
+
+    /**
+     * Keyset-paginated history. With no cursor the newest {@code limit} messages are returned;
+     * {@code beforeSeq} pages back into older history and {@code afterSeq} pages forward.
+     * The cursor is the per-group seq, not the id: ids come from per-node blocks and are not in send
+     * order across nodes. Pages within the newest few messages come from {@link ChatTailCache}; older
+     * pages are a single index seek on (group_id, seq), independent of how long the group has existed,
+     * merged with {@link ChatArchive} once they reach archived history.
+     */
+    @Transactional(readOnly = true)
+    public ChatHistoryPageDTO getMessagePage(Long groupId, Long beforeSeq, Long afterSeq, Integer limit) {
+        if (beforeSeq != null && afterSeq != null) {
+            throw new RuntimeException("Use either 'before' or 'after', not both");
+        }
+        int pageSize = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        ChatHistoryPageDTO cached = chatTailCache.readPage(groupId, beforeSeq, afterSeq, pageSize,
+            tailSize -> loadTail(groupId, tailSize));
+        if (cached != null) {
+            return cached;
+        }
+
+        // Fetch one extra row to find out whether another page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<GroupMessage> rows;
+        boolean descending = true;
+        if (afterSeq != null) {
+            rows = messageRepository.findByGroup_GroupIdAndSeqGreaterThanOrderBySeqAsc(groupId, afterSeq, page);
+            descending = false;
+        } else if (beforeSeq != null) {
+            rows = messageRepository.findByGroup_GroupIdAndSeqLessThanOrderBySeqDesc(groupId, beforeSeq, page);
+        } else {
+            rows = messageRepository.findByGroup_GroupIdOrderBySeqDesc(groupId, page);
+        }
+
+        List<ChatMessageDTO> fetched = mergeArchived(groupId, toChatMessageDTOs(rows), beforeSeq, afterSeq, pageSize + 1);
+        boolean hasMore = fetched.size() > pageSize;
+        List<ChatMessageDTO> messages = new ArrayList<>(hasMore ? fetched.subList(0, pageSize) : fetched);
+        if (descending) {
+            Collections.reverse(messages);
+        }
+
+        Long oldestSeq = messages.isEmpty() ? null : messages.get(0).getSeq();
+        Long newestSeq = messages.isEmpty() ? null : messages.get(messages.size() - 1).getSeq();
+        return new ChatHistoryPageDTO(messages, hasMore, oldestSeq, newestSeq);
+    }
+
+    /**
+     * Merges archived messages into a page read from the table. {@code live} and the result are in
+     * query order: ascending when paging forward ({@code afterSeq}), descending otherwise. The archive
+     * is only read when the page can reach archived seqs.
+     */
+    private List<ChatMessageDTO> mergeArchived(Long groupId, List<ChatMessageDTO> live, Long beforeSeq, Long afterSeq,
+                                               int wanted) {
+        Long archivedMax = chatArchive.maxArchivedSeq(groupId);
+        if (archivedMax == null) {
+            return live;
+        }
+        List<ChatMessageDTO> archived;
+        if (afterSeq != null) {
+            if (afterSeq >= archivedMax) {
+                return live;
+            }
+            archived = chatArchive.readAfter(groupId, afterSeq, wanted);
+        } else {
+            if (live.size() >= wanted && live.get(wanted - 1).getSeq() > archivedMax) {
+                return live;
+            }
+            archived = chatArchive.readBefore(groupId, beforeSeq, wanted);
+        }
+        if (archived.isEmpty()) {
+            return live;
+        }
+
+        // Keyed by seq: a row archived moments ago may briefly be in both
+        TreeMap<Long, ChatMessageDTO> merged = new TreeMap<>();
+        archived.forEach(m -> merged.put(m.getSeq(), m));
+        live.forEach(m -> merged.put(m.getSeq(), m));
+        List<ChatMessageDTO> ordered = new ArrayList<>(afterSeq != null ? merged.values() : merged.descendingMap().values());
+        return ordered.size() > wanted ? new ArrayList<>(ordered.subList(0, wanted)) : ordered;
+    }
+
+    /**
+     * Messages with sequence numbers {@code fromSeq..toSeq} (inclusive), for a client that saw a jump
+     * in {@code seq}. Includes messages still on their way to the database. Numbers with no message
+     * were deleted or never written.
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessageDTO> getMessagesBySeq(Long groupId, Long fromSeq, Long toSeq) {
+        if (fromSeq == null || toSeq == null || fromSeq > toSeq) {
+            throw new RuntimeException("Invalid sequence range");
+        }
+        if (toSeq - fromSeq >= MAX_PAGE_SIZE) {
+            throw new RuntimeException("Sequence range is too large, use the history endpoint instead");
+        }
+        List<ChatMessageDTO> inFlight = chatWriteBehindService.pendingForGroup(groupId);
+        Map<Long, ChatMessageDTO> bySeq = new TreeMap<>();
+        for (ChatMessageDTO dto : toChatMessageDTOs(
+                messageRepository.findByGroup_GroupIdAndSeqBetweenOrderBySeqAsc(groupId, fromSeq, toSeq))) {
+            bySeq.put(dto.getSeq(), dto);
+        }
+        for (ChatMessageDTO dto : inFlight) {
+            if (dto.getSeq() != null && dto.getSeq() >= fromSeq && dto.getSeq() <= toSeq) {
+                bySeq.putIfAbsent(dto.getSeq(), dto);
+            }
+        }
+        return new ArrayList<>(bySeq.values());
+    }
+
+    /**
+     * Everything a client missed in a group: messages newer than {@code sinceSeq}, its last seen chat
+     * sequence number (one page, including ones still on their way to the database), plus deletions and
+     * polls whose totals changed after {@code sinceChange}, its last seen change number. A client that
+     * has no change number yet passes null and gets the current one without any changes.
+     * Cost is proportional to what changed, not to history length.
+     */
+    @Transactional(readOnly = true)
+    public ChatResyncDTO resync(Long groupId, Long sinceSeq, Long sinceChange, Integer limit) {
+        if (sinceSeq == null) {
+            throw new RuntimeException("A last seen sequence number is required");
+        }
+        int pageSize = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        TreeMap<Long, ChatMessageDTO> bySeq = new TreeMap<>();
+        for (ChatMessageDTO dto : toChatMessageDTOs(messageRepository.findByGroup_GroupIdAndSeqGreaterThanOrderBySeqAsc(
+                groupId, sinceSeq, PageRequest.of(0, pageSize + 1)))) {
+            bySeq.put(dto.getSeq(), dto);
+        }
+        for (ChatMessageDTO dto : chatWriteBehindService.pendingForGroup(groupId)) {
+            if (dto.getSeq() != null && dto.getSeq() > sinceSeq) {
+                bySeq.putIfAbsent(dto.getSeq(), dto);
+            }
+        }
+        List<ChatMessageDTO> newer = new ArrayList<>(bySeq.values());
+        boolean hasMore = newer.size() > pageSize;
+        if (hasMore) {
+            newer = new ArrayList<>(newer.subList(0, pageSize));
+        }
+
+        List<Long> deletedIds = new ArrayList<>();
+        List<Long> votedPollIds = new ArrayList<>();
+        long changeCursor;
+        if (sinceChange == null) {
+            changeCursor = groupSequenceAllocator.latestChange(groupId);
+        } else {
+            // The cursor only moves past changes actually returned, never past one still being committed
+            changeCursor = sinceChange;
+            for (MessageTombstone tombstone : tombstoneRepository.findByGroupIdAndChangeSeqGreaterThan(groupId, sinceChange)) {
+                deletedIds.add(tombstone.getMessageId());
+                changeCursor = Math.max(changeCursor, tombstone.getChangeSeq());
+            }
+            for (Poll poll : pollRepository.findByGroup_GroupIdAndVoteMarkerGreaterThan(groupId, sinceChange)) {
+                votedPollIds.add(poll.getId());
+                changeCursor = Math.max(changeCursor, poll.getVoteMarker());
+            }
+        }
+
+        List<PollResultDTO> pollResults = new ArrayList<>();
+        if (!votedPollIds.isEmpty()) {
+            Map<Long, List<PollOptionDTO>> optionsByPollId = new HashMap<>();
+            for (PollOption o : pollOptionRepository.findByPoll_IdInOrderById(votedPollIds)) {
+                optionsByPollId.computeIfAbsent(o.getPoll().getId(), k -> new ArrayList<>())
+                    .add(new PollOptionDTO(o.getId(), o.getOptionText(), pollVoteCounter.total(o.getId(), o.getVoteCount())));
+            }
+            optionsByPollId.forEach((pollId, options) -> pollResults.add(new PollResultDTO(pollId, options)));
+        }
+
+        return new ChatResyncDTO(groupId, newer, hasMore, deletedIds, pollResults, changeCursor);
+    }
+
+    /**
+     * Full-text search within a group, best matches first, {@code size} hits per page (page 0 first).
+     * Ranking comes from {@link ChatSearchIndex}; only the hits on the requested page are loaded.
+     */
+    @Transactional(readOnly = true)
+    public ChatSearchPageDTO searchMessages(Long groupId, String query, Integer page, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new RuntimeException("A search query is required");
+        }
+        int pageNumber = (page == null || page < 0) ? 0 : page;
+        int pageSize = (size == null || size <= 0) ? DEFAULT_SEARCH_PAGE_SIZE : Math.min(size, MAX_SEARCH_PAGE_SIZE);
+
+        ChatSearchIndex.Ranked ranked = chatSearchIndex.search(groupId, query, pageNumber * pageSize, pageSize,
+            () -> loadSearchTexts(groupId));
+        List<Long> ids = ranked.hits().stream().map(ChatSearchIndex.Hit::messageId).collect(Collectors.toList());
+
+        Map<Long, ChatMessageDTO> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (ChatMessageDTO dto : toChatMessageDTOs(messageRepository.findByIdIn(ids))) {
+                byId.put(dto.getMessageId(), dto);
+            }
+            for (ChatMessageDTO dto : chatWriteBehindService.pendingForGroup(groupId)) {
+                byId.putIfAbsent(dto.getMessageId(), dto);
+            }
+            List<Long> missing = ids.stream().filter(id -> !byId.containsKey(id)).collect(Collectors.toList());
+            for (ChatMessageDTO dto : chatArchive.readByIds(groupId, missing)) {
+                byId.putIfAbsent(dto.getMessageId(), dto);
+            }
+        }
+
+        List<String> terms = ChatSearchIndex.terms(query);
+        List<ChatSearchHitDTO> hits = new ArrayList<>();
+        for (ChatSearchIndex.Hit hit : ranked.hits()) {
+            ChatMessageDTO message = byId.get(hit.messageId());
+            if (message == null) {
+                // Deleted through a path that didn't reach the index
+                chatSearchIndex.remove(groupId, hit.messageId());
+                continue;
+            }
+            hits.add(new ChatSearchHitDTO(message, ChatSearchIndex.snippet(message.getContent(), terms), hit.score()));
+        }
+        return new ChatSearchPageDTO(query, pageNumber, pageSize, ranked.total(), hits);
+    }
+
+    /**
+     * Searchable text of every message in a group, read in id order chunks: the content, plus the
+     * stored file name for documents. Archived messages and messages still queued for the database
+     * are included.
+     */
+    private Map<Long, String> loadSearchTexts(Long groupId) {
+        Map<Long, String> texts = new HashMap<>();
+        chatArchive.forEach(groupId, archived -> texts.put(archived.getMessageId(), archived.getContent()));
+        for (ChatMessageDTO pending : chatWriteBehindService.pendingForGroup(groupId)) {
+            texts.put(pending.getMessageId(), pending.getContent());
+        }
+        long afterId = 0;
+        while (true) {
+            List<GroupMessageRepository.MessageText> chunk =
+                messageRepository.findTexts(groupId, afterId, PageRequest.of(0, SEARCH_LOAD_CHUNK));
+            for (GroupMessageRepository.MessageText row : chunk) {
+                texts.put(row.getId(), row.getContent());
+            }
+            if (chunk.size() < SEARCH_LOAD_CHUNK) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        for (MessageDocumentRepository.DocumentName doc : messageDocumentRepository.findDocumentNames(groupId)) {
+            String text = texts.get(doc.getMessageId());
+            if (text != null && doc.getOriginalFilename() != null && !doc.getOriginalFilename().equals(text)) {
+                texts.put(doc.getMessageId(), text + " " + doc.getOriginalFilename());
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Newest {@code size} messages of a group for the tail cache, plus any that are broadcast but
+     * still queued for the database. The in-flight snapshot is taken first so that a message flushed
+     * while the query runs is still seen by one of the two.
+     */
+    private List<ChatMessageDTO> loadTail(Long groupId, int size) {
+        List<ChatMessageDTO> inFlight = chatWriteBehindService.pendingForGroup(groupId);
+        List<ChatMessageDTO> tail = mergeArchived(groupId,
+            toChatMessageDTOs(messageRepository.findByGroup_GroupIdOrderBySeqDesc(groupId, PageRequest.of(0, size))),
+            null, null, size);
+        tail = new ArrayList<>(tail);
+        Collections.reverse(tail);
+        tail.addAll(inFlight);
+        return tail;
+    }
+
+    /**
+     * Hydrates a list of messages into DTOs with a fixed number of queries, however long the list is:
+     * senders come from the message query itself, replies and poll options are fetched with IN.
+     */
+    public List<ChatMessageDTO> toChatMessageDTOs(List<GroupMessage> messages) {
+        if (messages.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> messageIds = messages.stream().map(GroupMessage::getId).collect(Collectors.toList());
+        Map<Long, MessageReplyRepository.ReplyPreview> repliesByMessageId = new HashMap<>();
+        for (List<Long> chunk : Lists.partition(messageIds, IN_CLAUSE_CHUNK)) {
+            for (MessageReplyRepository.ReplyPreview preview : messageReplyRepository.findReplyPreviews(chunk)) {
+                repliesByMessageId.put(preview.getReplyMessageId(), preview);
+            }
+        }
+
+        List<Long> pollIds = messages.stream()
+            .filter(m -> "POLL".equalsIgnoreCase(m.getMessageType()) && m.getPollId() != null)
+            .map(GroupMessage::getPollId)
+            .distinct()
+            .collect(Collectors.toList());
+        Map<Long, List<PollOptionDTO>> optionsByPollId = new HashMap<>();
+        for (List<Long> chunk : Lists.partition(pollIds, IN_CLAUSE_CHUNK)) {
+            for (PollOption o : pollOptionRepository.findByPoll_IdInOrderById(chunk)) {
+                optionsByPollId.computeIfAbsent(o.getPoll().getId(), k -> new ArrayList<>())
+                    .add(new PollOptionDTO(o.getId(), o.getOptionText(), pollVoteCounter.total(o.getId(), o.getVoteCount())));
+            }
+        }
+
+        List<ChatMessageDTO> dtos = new ArrayList<>(messages.size());
+        for (GroupMessage message : messages) {
+            ChatMessageDTO dto = new ChatMessageDTO();
+            dto.setGroupId(message.getGroup().getGroupId());
+            dto.setMessageId(message.getId());
+            dto.setSeq(message.getSeq());
+            dto.setSenderId(message.getSender().getId());
+            dto.setSenderName(message.getSender().getName());
+            dto.setContent(message.getContent());
+            dto.setTimestamp(message.getTimestamp());
+            dto.setMessageType(message.getMessageType());
+
+            MessageReplyRepository.ReplyPreview reply = repliesByMessageId.get(message.getId());
+            if (reply != null) {
+                dto.setReplyToMessageId(reply.getOriginalMessageId());
+                dto.setReplyToContent(reply.getOriginalContent());
+                dto.setReplyToSenderName(reply.getOriginalSenderName());
+            }
+
+            if ("POLL".equalsIgnoreCase(message.getMessageType()) && message.getPollId() != null) {
+                dto.setPollId(message.getPollId());
+                dto.setPollOptions(optionsByPollId.getOrDefault(message.getPollId(), new ArrayList<>()));
+            }
+
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    /**
+     * Deletes a message of a group, live or archived, if the requester sent it. Archived copies stay
+     * in the archive and are hidden by the tombstone written here.
+     */
     @Transactional
-    public void deleteMessage(Long messageId, Integer requesterUserId) {
+    public void deleteMessage(Long groupId, Long messageId, Integer requesterUserId) {
+        // A message sent moments ago may still be on its way to the database
+        chatWriteBehindService.awaitPersisted(messageId);
+
         GroupMessage msg = messageRepository.findById(messageId)
-            .orElseThrow(() -> new RuntimeException("Message not found"));
+            .filter(m -> m.getGroup().getGroupId().equals(groupId))
+            .orElse(null);
+        if (msg == null) {
+            deleteArchivedMessage(groupId, messageId, requesterUserId);
+            return;
+        }
 
         if (!msg.getSender().getId().equals(requesterUserId)) {
             throw new RuntimeException("Not authorized to delete this message");
         }
 
         // Remove any reply records referencing this message either as reply or original
-        messageReplyRepository.findByReplyMessage_Id(messageId).ifPresent(messageReplyRepository::delete);
-
-        // Also delete any replies that point to this message as original (cleanup)
-        // Simple JPQL not added; use repository to delete by scanning - keep small for now
-        messageReplyRepository.findAll().stream()
-            .filter(r -> r.getOriginalMessage().getId().equals(messageId))
-            .forEach(messageReplyRepository::delete);
+        messageReplyRepository.deleteByReplyMessageId(messageId);
+        messageReplyRepository.deleteByOriginalMessageId(messageId);
 
         messageRepository.deleteById(messageId);
+        tombstoneRepository.save(new MessageTombstone(groupId, messageId, groupSequenceAllocator.nextChange(groupId)));
+        chatSearchIndex.remove(groupId, messageId);
+        // Replies to this message lose their preview too, so drop the whole cached tail
+        chatTailCache.invalidate(groupId);
+    }
+
+    // Archived messages have no replies, pins or documents (those stay live), so a tombstone is all it takes
+    private void deleteArchivedMessage(Long groupId, Long messageId, Integer requesterUserId) {
+        ChatMessageDTO archived = chatArchive.readByIds(groupId, List.of(messageId)).stream()
+            .findFirst()
+            .orElseThrow(() -> new RuntimeException("Message not found"));
+        if (!requesterUserId.equals(archived.getSenderId())) {
+            throw new RuntimeException("Not authorized to delete this message");
+        }
+        tombstoneRepository.save(new MessageTombstone(groupId, messageId, groupSequenceAllocator.nextChange(groupId)));
+        chatSearchIndex.remove(groupId, messageId);
     }
 
     @Transactional
@@ -85,7 +509,11 @@ public class GroupMessageService {
 
         GroupMessage message = new GroupMessage(group, sender, file.getOriginalFilename());
         message.setMessageType("document"); // Assuming message type for documents
+        message.setSeq(groupSequenceAllocator.next(groupId));
         GroupMessage saved = messageRepository.save(message);
+        // Document messages bypass the tail cache's write path, so reload the group's tail on next read
+        chatTailCache.invalidate(groupId);
+        chatSearchIndex.add(groupId, saved.getId(), saved.getContent());
 
         // Store the document using DocumentService
         // Note: DocumentService needs to be injected here, but since it's not, we'll assume it's handled elsewhere
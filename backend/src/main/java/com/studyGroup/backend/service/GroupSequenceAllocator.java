@@ -0,0 +1,256 @@
+package com.studyGroup.backend.service;
+
+import com.google.common.util.concurrent.Striped;
+import com.studyGroup.backend.config.WebSocketConfig;
+import com.studyGroup.backend.model.GroupSequence;
+import com.studyGroup.backend.repository.GroupSequenceRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out per-group chat sequence numbers (1, 2, 3, ... within each group), so clients can
+ * spot a missed broadcast and fetch just the missing range.
+ * <p>
+ * On a single node each group has an in-memory counter, seeded from MAX(seq) the first time the
+ * group is written to; seeding is guarded by a striped lock so groups never wait on each other.
+ * The seed also covers {@link ChatArchive}, since archived messages no longer have rows.
+ * With the external broker relay several nodes write to the same groups, so numbers are
+ * reserved from the group_sequences row instead.
+ * <p>
+ * Only messages take chat sequence numbers, so a jump in {@code seq} always means a missed message.
+ * Events that change messages already delivered (deletions, poll totals) are numbered on a separate
+ * per-group change cursor ({@link #nextChange}), which resync uses to find them.
+ */
+@Service
+public class GroupSequenceAllocator {
+
+    private final GroupSequenceRepository groupSequenceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatArchive chatArchive;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> changeCounters = new ConcurrentHashMap<>();
+    private final Striped<Lock> seedLocks = Striped.lock(64);
+
+    public GroupSequenceAllocator(GroupSequenceRepository groupSequenceRepository, JdbcTemplate jdbcTemplate,
+                                  ChatArchive chatArchive, PlatformTransactionManager transactionManager) {
+        this.groupSequenceRepository = groupSequenceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chatArchive = chatArchive;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Numbers the messages written before chat seqs existed, so that history can page on seq alone.
+     * A group's n such messages get 1 - n .. 0 in id order (ids were all handed out by one writer
+     * then), below every number the counters hand out. The numbering depends only on the rows, so
+     * nodes starting at the same time agree, and a run cut short is finished by the next one.
+     */
+    @PostConstruct
+    public void numberLegacyMessages() {
+        List<Long> groupIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT group_id FROM group_messages WHERE seq IS NULL", Long.class);
+        for (Long groupId : groupIds) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM group_messages WHERE group_id = ? AND (seq IS NULL OR seq <= 0) ORDER BY id",
+                    Long.class, groupId);
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                rows.add(new Object[] { (long) (i + 1 - ids.size()), ids.get(i) });
+            }
+            jdbcTemplate.batchUpdate("UPDATE group_messages SET seq = ? WHERE id = ?", rows);
+        }
+        if (!groupIds.isEmpty()) {
+            System.out.println("[GroupSequence] Numbered older messages of " + groupIds.size() + " group(s)");
+        }
+    }
+
+    public long next(Long groupId) {
+        return reserve(groupId, 1);
+    }
+
+    /**
+     * Reserves {@code count} consecutive sequence numbers for a group and returns the first.
+     */
+    public long reserve(Long groupId, int count) {
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            return reserveShared(groupId, count);
+        }
+        return counter(counters, groupId, () -> maxSeq(groupId)).getAndAdd(count) + 1;
+    }
+
+    /**
+     * Next number on a group's change cursor, taken by each deletion and each poll vote flush.
+     */
+    public long nextChange(Long groupId) {
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            try {
+                return requiresNew.execute(status -> doNextChangeShared(groupId));
+            } catch (DataIntegrityViolationException e) {
+                return requiresNew.execute(status -> doNextChangeShared(groupId));
+            }
+        }
+        return counter(changeCounters, groupId, () -> maxChange(groupId)).incrementAndGet();
+    }
+
+    /**
+     * Last change number handed out in a group (0 if nothing has changed yet).
+     */
+    public long latestChange(Long groupId) {
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            return groupSequenceRepository.findById(groupId)
+                    .map(GroupSequence::getLastChange)
+                    .orElseGet(() -> maxChange(groupId));
+        }
+        return counter(changeCounters, groupId, () -> maxChange(groupId)).get();
+    }
+
+    /**
+     * Last sequence number handed out in each of the given groups (0 for groups without messages).
+     * Counters that aren't loaded yet are seeded with one grouped query.
+     */
+    public Map<Long, Long> latest(Collection<Long> groupIds) {
+        Map<Long, Long> latest = new HashMap<>();
+        if (groupIds.isEmpty()) {
+            return latest;
+        }
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            for (GroupSequence sequence : groupSequenceRepository.findAllById(groupIds)) {
+                latest.put(sequence.getGroupId(), sequence.getLastSeq());
+            }
+        } else {
+            for (Long groupId : groupIds) {
+                AtomicLong counter = counters.get(groupId);
+                if (counter != null) {
+                    latest.put(groupId, counter.get());
+                }
+            }
+        }
+
+        List<Long> missing = groupIds.stream().filter(id -> !latest.containsKey(id)).distinct().toList();
+        if (!missing.isEmpty()) {
+            Map<Long, Long> maxSeqs = maxSeqs(missing);
+            for (Long groupId : missing) {
+                long max = maxSeqs.getOrDefault(groupId, 0L);
+                if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+                    latest.put(groupId, max);
+                } else {
+                    latest.put(groupId, seed(groupId, max).get());
+                }
+            }
+        }
+        return latest;
+    }
+
+    private AtomicLong counter(Map<Long, AtomicLong> counters, Long groupId, LongSupplier seed) {
+        AtomicLong counter = counters.get(groupId);
+        if (counter != null) {
+            return counter;
+        }
+        Lock lock = seedLocks.get(groupId);
+        lock.lock();
+        try {
+            counter = counters.get(groupId);
+            if (counter == null) {
+                counter = new AtomicLong(seed.getAsLong());
+                counters.put(groupId, counter);
+            }
+            return counter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Installs a counter from an already-read MAX(seq) unless another thread got there first
+    private AtomicLong seed(Long groupId, long maxSeq) {
+        Lock lock = seedLocks.get(groupId);
+        lock.lock();
+        try {
+            return counters.computeIfAbsent(groupId, k -> new AtomicLong(maxSeq));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long reserveShared(Long groupId, int count) {
+        try {
+            return requiresNew.execute(status -> doReserveShared(groupId, count));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the row at the same moment; it exists now, so lock and retry
+            return requiresNew.execute(status -> doReserveShared(groupId, count));
+        }
+    }
+
+    private long doReserveShared(Long groupId, int count) {
+        GroupSequence sequence = groupSequenceRepository.findForUpdate(groupId)
+                .orElseGet(() -> new GroupSequence(groupId, maxSeq(groupId), null));
+        long first = sequence.getLastSeq() + 1;
+        sequence.setLastSeq(sequence.getLastSeq() + count);
+        groupSequenceRepository.saveAndFlush(sequence);
+        return first;
+    }
+
+    private long doNextChangeShared(Long groupId) {
+        GroupSequence sequence = groupSequenceRepository.findForUpdate(groupId)
+                .orElseGet(() -> new GroupSequence(groupId, maxSeq(groupId), null));
+        if (sequence.getLastChange() == null) {
+            sequence.setLastChange(maxChange(groupId));
+        }
+        sequence.setLastChange(sequence.getLastChange() + 1);
+        groupSequenceRepository.saveAndFlush(sequence);
+        return sequence.getLastChange();
+    }
+
+    private Map<Long, Long> maxSeqs(List<Long> groupIds) {
+        Map<Long, Long> maxSeqs = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(groupIds.size(), "?"));
+        jdbcTemplate.query("SELECT group_id, COALESCE(MAX(seq), 0) FROM group_messages WHERE group_id IN ("
+                        + placeholders + ") GROUP BY group_id",
+                rs -> {
+                    maxSeqs.put(rs.getLong(1), rs.getLong(2));
+                }, groupIds.toArray());
+        for (Long groupId : groupIds) {
+            Long archived = chatArchive.maxArchivedSeq(groupId);
+            if (archived != null) {
+                maxSeqs.merge(groupId, archived, Math::max);
+            }
+        }
+        return maxSeqs;
+    }
+
+    private long maxSeq(Long groupId) {
+        long live = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(seq), 0) FROM group_messages WHERE group_id = ?", Long.class, groupId);
+        Long archived = chatArchive.maxArchivedSeq(groupId);
+        return archived == null ? live : Math.max(live, archived);
+    }
+
+    private long maxChange(Long groupId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT GREATEST((SELECT COALESCE(MAX(change_seq), 0) FROM group_message_tombstones WHERE group_id = ?), "
+                        + "(SELECT COALESCE(MAX(vote_marker), 0) FROM polls WHERE group_id = ?))",
+                Long.class, groupId, groupId);
+    }
+}
@@ -17,6 +17,7 @@ import com.studyGroup.backend.repository.ProfileRepository;
 import com.studyGroup.backend.repository.CalendarEventRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -41,6 +42,9 @@ public class GroupService {
     @Autowired
     private CalendarEventRepository calendarEventRepository;
 
+    @Autowired
+    private ReadPointerService readPointerService;
+
     /**
      * Helper method to retrieve the "About Me" field from the Profile entity.
      * Searches by email using the defined repository method.
@@ -227,9 +231,15 @@ public class GroupService {
 
     public List<GroupDTO> findGroupsByUserId(Integer userId) {
         List<GroupMember> memberships = groupMemberRepository.findByUserId(userId);
-        return memberships.stream()
+        List<GroupDTO> groups = memberships.stream()
                 .map(membership -> convertToDTO(membership.getGroup(), membership.getRole()))
                 .collect(Collectors.toList());
+
+        // Unread badges for every group in one pass over in-memory counters
+        Map<Long, Long> unread = readPointerService.unreadCounts(userId,
+                groups.stream().map(GroupDTO::getGroupId).collect(Collectors.toList()));
+        groups.forEach(group -> group.setUnreadCount(unread.getOrDefault(group.getGroupId(), 0L)));
+        return groups;
     }
 
     @Transactional
@@ -0,0 +1,105 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.model.IdBlock;
+import com.studyGroup.backend.repository.IdBlockRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out primary keys from blocks reserved in the id_blocks table, so ids are known
+ * before a row is inserted (write-behind, JDBC batching) and stay unique across nodes.
+ * A table's first block is seeded from its current MAX(id), so existing rows are never reused.
+ */
+@Service
+public class IdBlockAllocator {
+
+    // Chat message ids; also used for other events that need a place on the message timeline
+    public static final String GROUP_MESSAGES_BLOCK = "group_messages";
+    // Reply links written by the chat write-behind flusher
+    public static final String MESSAGE_REPLIES_BLOCK = "message_replies";
+
+    private static volatile IdBlockAllocator instance;
+
+    private final IdBlockRepository idBlockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+
+    private final Map<String, Range> ranges = new ConcurrentHashMap<>();
+
+    public IdBlockAllocator(IdBlockRepository idBlockRepository, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ids.block-size:100}") int blockSize) {
+        this.idBlockRepository = idBlockRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    @PostConstruct
+    void register() {
+        instance = this;
+    }
+
+    /**
+     * Access for Hibernate id generators, which are not Spring beans.
+     */
+    public static IdBlockAllocator getInstance() {
+        IdBlockAllocator allocator = instance;
+        if (allocator == null) {
+            throw new IllegalStateException("IdBlockAllocator is not initialised yet");
+        }
+        return allocator;
+    }
+
+    /**
+     * Next id for {@code table}. Only called with table names from code, never user input.
+     */
+    public long nextId(String table) {
+        Range range = ranges.computeIfAbsent(table, k -> new Range());
+        synchronized (range) {
+            if (range.next >= range.limit) {
+                long start = reserveBlock(table);
+                range.next = start;
+                range.limit = start + blockSize;
+            }
+            return range.next++;
+        }
+    }
+
+    private long reserveBlock(String table) {
+        try {
+            return requiresNew.execute(status -> doReserveBlock(table));
+        } catch (DataIntegrityViolationException e) {
+            // Another node seeded the row at the same moment; it exists now, so lock and retry
+            return requiresNew.execute(status -> doReserveBlock(table));
+        }
+    }
+
+    private long doReserveBlock(String table) {
+        IdBlock block = idBlockRepository.findForUpdate(table).orElse(null);
+        if (block == null) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            block = new IdBlock(table, maxId + 1);
+        }
+        long start = block.getNextVal();
+        block.setNextVal(start + blockSize);
+        idBlockRepository.saveAndFlush(block);
+        return start;
+    }
+
+    private static class Range {
+        private long next;
+        private long limit;
+    }
+}
@@ -1,24 +1,54 @@
 package com.studyGroup.backend.service;
 
+import com.studyGroup.backend.config.AuthenticatedUser;
 import com.studyGroup.backend.dto.NotificationDTO;
+import com.studyGroup.backend.dto.NotificationPageDTO;
+import com.studyGroup.backend.dto.UnreadCountDTO;
+import com.studyGroup.backend.model.GroupNotification;
+import com.studyGroup.backend.model.GroupNotificationReceipt;
 import com.studyGroup.backend.model.Notification;
 import com.studyGroup.backend.model.User;
+import com.studyGroup.backend.repository.GroupNotificationReceiptRepository;
+import com.studyGroup.backend.repository.GroupNotificationRepository;
 import com.studyGroup.backend.repository.NotificationRepository;
 import com.studyGroup.backend.repository.UsersRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class NotificationService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Inbox order, and the order the page cursor follows
+    private static final Comparator<NotificationDTO> NEWEST_FIRST = Comparator
+            .comparing(NotificationDTO::getCreatedAt)
+            .thenComparing(NotificationDTO::getId)
+            .reversed();
+
     @Autowired
     private NotificationRepository notificationRepository;
 
@@ -26,7 +56,25 @@ public class NotificationService {
     private UsersRepository usersRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private StompPublisher stompPublisher;
+
+    @Autowired
+    private GroupNotificationRepository groupNotificationRepository;
+
+    @Autowired
+    private GroupNotificationReceiptRepository groupNotificationReceiptRepository;
+
+    @Autowired
+    private NotificationUnreadCounter notificationUnreadCounter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.group-scope-threshold:500}")
+    private int groupScopeThreshold;
 
     public NotificationDTO createNotification(Integer userId, String message, String type) {
         return createNotification(userId, null, message, type, null, null);
@@ -34,23 +82,104 @@ public class NotificationService {
 
     public NotificationDTO createNotification(Integer userId, String title, String message, String type,
                                               Long relatedEntityId, String relatedEntityType) {
-        Notification notification = new Notification();
-        notification.setUserId(userId);
+        return createNotifications(List.of(userId), title, message, type, relatedEntityId, relatedEntityType).get(0);
+    }
+
+    /**
+     * Sends the same notification to every recipient. All rows are inserted in one transaction
+     * (batched by Hibernate, ids come from the pooled generator); the pushes to
+     * /queue/notifications/{userId} go out only once that transaction - or the caller's, if one is
+     * active - has committed, so nobody is told about a row that was rolled back.
+     */
+    public List<NotificationDTO> createNotifications(Collection<Integer> recipientIds, String title, String message,
+                                                     String type, Long relatedEntityId, String relatedEntityType) {
+        if (recipientIds.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>(recipientIds.size());
+        for (Integer userId : new LinkedHashSet<>(recipientIds)) {
+            Notification notification = new Notification();
+            notification.setUserId(userId);
+            notification.setTitle(title);
+            notification.setMessage(message);
+            notification.setType(type);
+            notification.setIsRead(false);
+            notification.setCreatedAt(now);
+            notification.setRelatedEntityId(relatedEntityId);
+            notification.setRelatedEntityType(relatedEntityType);
+            notifications.add(notification);
+        }
+
+        return transactionTemplate.execute(status -> {
+            List<NotificationDTO> dtos = notificationRepository.saveAll(notifications).stream()
+                    .map(this::convertToDTO)
+                    .collect(Collectors.toList());
+            publishAfterCommit(() -> dtos);
+            return dtos;
+        });
+    }
+
+    /**
+     * Notifies the members of a group, except {@code excludedUserId} (may be null). Below
+     * {@code notifications.group-scope-threshold} recipients this is {@link #createNotifications};
+     * above it a single group-scoped row is stored and merged into each member's inbox when it is
+     * read, so a large group doesn't add thousands of rows per event. Either way every recipient
+     * gets the real-time push after commit.
+     */
+    public void createGroupNotifications(Long groupId, Collection<Integer> memberIds, Integer excludedUserId,
+                                         String title, String message, String type,
+                                         Long relatedEntityId, String relatedEntityType) {
+        List<Integer> recipientIds = memberIds.stream()
+                .filter(memberId -> !memberId.equals(excludedUserId))
+                .distinct()
+                .collect(Collectors.toList());
+        if (recipientIds.size() < groupScopeThreshold) {
+            createNotifications(recipientIds, title, message, type, relatedEntityId, relatedEntityType);
+            return;
+        }
+
+        GroupNotification notification = new GroupNotification();
+        notification.setGroupId(groupId);
+        notification.setExcludedUserId(excludedUserId);
         notification.setTitle(title);
         notification.setMessage(message);
         notification.setType(type);
-        notification.setIsRead(false);
         notification.setCreatedAt(LocalDateTime.now());
         notification.setRelatedEntityId(relatedEntityId);
         notification.setRelatedEntityType(relatedEntityType);
 
-        Notification savedNotification = notificationRepository.save(notification);
-        NotificationDTO dto = convertToDTO(savedNotification);
+        transactionTemplate.executeWithoutResult(status -> {
+            GroupNotification saved = groupNotificationRepository.save(notification);
+            publishAfterCommit(() -> recipientIds.stream()
+                    .map(userId -> convertToDTO(saved, userId, false))
+                    .collect(Collectors.toList()));
+        });
+    }
+
+    // Publish real-time notifications to the user-specific destinations once the current transaction commits
+    private void publishAfterCommit(Supplier<List<NotificationDTO>> dtos) {
+        afterCommit(() -> {
+            for (NotificationDTO dto : dtos.get()) {
+                stompPublisher.publish("/queue/notifications/" + dto.getUserId(), dto);
+                notificationUnreadCounter.adjust(dto.getUserId(), 1);
+            }
+        });
+    }
 
-        // Publish real-time notification to user-specific destination
-        messagingTemplate.convertAndSend("/queue/notifications/" + userId, dto);
+    // Runs once the current transaction commits; never for a rollback
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-        return dto;
+    public List<NotificationDTO> createUpdateNotifications(Collection<Integer> recipientIds, String title, String message,
+                                                           Long relatedEntityId, String relatedEntityType) {
+        return createNotifications(recipientIds, title, message, "Updates", relatedEntityId, relatedEntityType);
     }
 
     // Convenience helpers for common types
@@ -69,26 +198,86 @@ public class NotificationService {
         return createNotification(userId, title, message, "Updates", relatedEntityId, relatedEntityType);
     }
 
+    /**
+     * The user's own notifications merged with the group-scoped ones of their groups, newest first.
+     */
     public List<NotificationDTO> getNotificationsByUserId(Integer userId) {
         List<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return notifications.stream().map(this::convertToDTO).collect(Collectors.toList());
+        List<NotificationDTO> inbox = notifications.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return mergeGroupNotifications(inbox, userId, false);
     }
 
     public List<NotificationDTO> getUnreadNotificationsByUserId(Integer userId) {
         List<Notification> notifications = notificationRepository.findByUserIdAndIsReadOrderByCreatedAtDesc(userId, false);
-        return notifications.stream().map(this::convertToDTO).collect(Collectors.toList());
+        List<NotificationDTO> inbox = notifications.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return mergeGroupNotifications(inbox, userId, true);
+    }
+
+    /**
+     * One page of the inbox (own and group-scoped notifications), newest first. First load: no
+     * cursor. Older pages: {@code before} = the previous page's {@code nextBefore}.
+     */
+    public NotificationPageDTO getNotificationPage(Integer userId, Integer before, Integer limit, boolean unreadOnly) {
+        int pageSize = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        LocalDateTime cursorTime = null;
+        if (before != null) {
+            // Only the user's own or visible notifications resolve, so a cursor can't probe other inboxes
+            cursorTime = notificationRepository.findCreatedAt(before, userId)
+                    .or(() -> groupNotificationRepository.findVisibleCreatedAt(before, userId))
+                    .orElseThrow(() -> new RuntimeException("Notification not found: " + before));
+        }
+
+        // Fetch one extra from each source to find out whether another page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Notification> own = cursorTime == null
+                ? notificationRepository.findInbox(userId, unreadOnly, page)
+                : notificationRepository.findInboxBefore(userId, unreadOnly, cursorTime, before, page);
+        List<NotificationDTO> merged = own.stream().map(this::convertToDTO).collect(Collectors.toList());
+        merged.addAll(groupNotificationPage(userId, cursorTime, before, pageSize + 1, unreadOnly));
+        merged.sort(NEWEST_FIRST);
+
+        boolean hasMore = merged.size() > pageSize;
+        List<NotificationDTO> notifications = new ArrayList<>(hasMore ? merged.subList(0, pageSize) : merged);
+        Integer nextBefore = notifications.isEmpty() ? null : notifications.get(notifications.size() - 1).getId();
+        return new NotificationPageDTO(notifications, hasMore, nextBefore);
+    }
+
+    /**
+     * Number of unread notifications, from the per-user cache when it holds one.
+     */
+    public UnreadCountDTO getUnreadCount(Integer userId) {
+        long count = notificationUnreadCounter.get(userId, () -> {
+            return notificationRepository.countByUserIdAndIsRead(userId, false)
+                    + groupNotificationRepository.countUnread(userId);
+        });
+        return new UnreadCountDTO(userId, count);
     }
 
     @Transactional
     public void markAsRead(Integer notificationId) {
         Integer authenticatedUserId = getAuthenticatedUserId();
-        Notification notification = notificationRepository.findById(notificationId)
-                .orElseThrow(() -> new RuntimeException("Notification not found"));
-        if (!authenticatedUserId.equals(notification.getUserId())) {
+        // Ownership is part of the UPDATE; 0 rows means read already, someone else's, or group-scoped
+        if (notificationRepository.markRead(notificationId, authenticatedUserId) > 0) {
+            afterCommit(() -> notificationUnreadCounter.adjust(authenticatedUserId, -1));
+            return;
+        }
+        Optional<GroupNotification> found = groupNotificationRepository.findById(notificationId);
+        if (found.isEmpty()) {
+            Integer ownerId = notificationRepository.findOwnerId(notificationId)
+                    .orElseThrow(() -> new RuntimeException("Notification not found"));
+            if (!authenticatedUserId.equals(ownerId)) {
+                throw new RuntimeException("Unauthorized: Cannot mark notification as read for another user");
+            }
+            // The user's own notification, already read
+            return;
+        }
+        GroupNotification groupNotification = found.get();
+        if (groupNotificationRepository.findVisibleIds(List.of(notificationId), authenticatedUserId).isEmpty()) {
             throw new RuntimeException("Unauthorized: Cannot mark notification as read for another user");
         }
-        notification.setIsRead(true);
-        notificationRepository.save(notification);
+        int counted = countedInUnread(authenticatedUserId, List.of(groupNotification));
+        writeReceipts(authenticatedUserId, List.of(notificationId), true, false);
+        afterCommit(() -> notificationUnreadCounter.adjust(authenticatedUserId, -counted));
     }
 
     @Transactional
@@ -97,11 +286,16 @@ public class NotificationService {
         if (!authenticatedUserId.equals(userId)) {
             throw new RuntimeException("Unauthorized: Cannot modify notifications for another user");
         }
-        List<Notification> notifications = notificationRepository.findByUserIdAndIsReadOrderByCreatedAtDesc(userId, false);
-        for (Notification notification : notifications) {
-            notification.setIsRead(true);
-        }
-        notificationRepository.saveAll(notifications);
+        notificationRepository.markAllRead(userId);
+
+        // One receipt per group-scoped notification the user can see, written by a single statement
+        jdbcTemplate.update("INSERT INTO group_notification_receipts (notification_id, user_id, is_read, is_dismissed) "
+                + "SELECT g.id, m.user_id, TRUE, FALSE FROM group_notifications g "
+                + "JOIN group_member m ON m.group_id = g.group_id AND m.user_id = ? "
+                + "WHERE (m.joined_at IS NULL OR g.created_at >= m.joined_at) "
+                + "AND (g.excluded_user_id IS NULL OR g.excluded_user_id <> m.user_id) "
+                + "ON DUPLICATE KEY UPDATE is_read = TRUE", userId);
+        afterCommit(() -> notificationUnreadCounter.reset(userId));
     }
 
     @Transactional
@@ -110,20 +304,125 @@ public class NotificationService {
         if (!authenticatedUserId.equals(userId)) {
             throw new RuntimeException("Unauthorized: Cannot delete notifications for another user");
         }
-        notificationRepository.deleteByUserIdAndIsRead(userId, true);
+        notificationRepository.deleteRead(userId);
+
+        // Group-scoped rows are shared; deleting one only dismisses it for this user
+        jdbcTemplate.update("UPDATE group_notification_receipts SET is_dismissed = TRUE "
+                + "WHERE user_id = ? AND is_read = TRUE AND is_dismissed = FALSE", userId);
     }
 
+    /**
+     * Deletes the given notifications of the authenticated user, all or nothing: if any id belongs to
+     * someone else nothing is deleted. Group-scoped ones are dismissed for this user.
+     */
     @Transactional
     public void deleteNotifications(List<Integer> notificationIds) {
         Integer authenticatedUserId = getAuthenticatedUserId();
-        // Verify that all notifications belong to the authenticated user
-        List<Notification> notifications = notificationRepository.findAllById(notificationIds);
-        for (Notification notification : notifications) {
-            if (!authenticatedUserId.equals(notification.getUserId())) {
-                throw new RuntimeException("Unauthorized: Cannot delete notifications that don't belong to you");
+        if (notificationIds.isEmpty()) {
+            return;
+        }
+        // Ownership is part of the DELETE's WHERE clause; fewer rows deleted than exist means some ids
+        // aren't the user's, and the exception rolls the delete back
+        long unread = notificationRepository.countByIdInAndUserIdAndIsRead(notificationIds, authenticatedUserId, false);
+        long existing = notificationRepository.countByIdIn(notificationIds);
+        if (notificationRepository.deleteByIdIn(notificationIds, authenticatedUserId) != existing) {
+            throw new RuntimeException("Unauthorized: Cannot delete notifications that don't belong to you");
+        }
+
+        // Both kinds share one id space, so any group-scoped ids are found directly
+        List<Integer> visibleIds = groupNotificationRepository.findVisibleIds(notificationIds, authenticatedUserId);
+        if (groupNotificationRepository.countByIdIn(notificationIds) != visibleIds.size()) {
+            throw new RuntimeException("Unauthorized: Cannot delete notifications that don't belong to you");
+        }
+        List<GroupNotification> groupNotifications = groupNotificationRepository.findAllById(visibleIds);
+        if (!groupNotifications.isEmpty()) {
+            unread += countedInUnread(authenticatedUserId, groupNotifications);
+            writeReceipts(authenticatedUserId,
+                    groupNotifications.stream().map(GroupNotification::getId).collect(Collectors.toList()), false, true);
+        }
+        long removed = unread;
+        afterCommit(() -> notificationUnreadCounter.adjust(authenticatedUserId, -removed));
+    }
+
+    private List<NotificationDTO> mergeGroupNotifications(List<NotificationDTO> inbox, Integer userId, boolean unreadOnly) {
+        List<NotificationDTO> groupNotifications = groupNotificationsFor(userId, unreadOnly);
+        if (groupNotifications.isEmpty()) {
+            return inbox;
+        }
+        inbox.addAll(groupNotifications);
+        inbox.sort(NEWEST_FIRST);
+        return inbox;
+    }
+
+    // Up to (about) count visible group-scoped notifications older than the cursor, skipping dismissed ones
+    private List<NotificationDTO> groupNotificationPage(Integer userId, LocalDateTime createdAt, Integer beforeId,
+                                                        int count, boolean unreadOnly) {
+        List<NotificationDTO> result = new ArrayList<>();
+        PageRequest page = PageRequest.of(0, count);
+        while (true) {
+            List<GroupNotification> chunk = createdAt == null
+                    ? groupNotificationRepository.findInbox(userId, page)
+                    : groupNotificationRepository.findInboxBefore(userId, createdAt, beforeId, page);
+            result.addAll(withReceipts(userId, chunk, unreadOnly));
+            if (result.size() >= count || chunk.size() < count) {
+                return result;
+            }
+            GroupNotification last = chunk.get(chunk.size() - 1);
+            createdAt = last.getCreatedAt();
+            beforeId = last.getId();
+        }
+    }
+
+    // How many of these group-scoped notifications the user's unread count includes
+    private int countedInUnread(Integer userId, List<GroupNotification> notifications) {
+        List<GroupNotification> visible = notifications.stream()
+                .filter(notification -> !userId.equals(notification.getExcludedUserId()))
+                .collect(Collectors.toList());
+        return withReceipts(userId, visible, true).size();
+    }
+
+    // Group-scoped notifications the user can see, with the user's read state, minus dismissed ones
+    private List<NotificationDTO> groupNotificationsFor(Integer userId, boolean unreadOnly) {
+        return withReceipts(userId, groupNotificationRepository.findVisible(userId), unreadOnly);
+    }
+
+    // The notifications as the user sees them: with their read state, without dismissed ones
+    private List<NotificationDTO> withReceipts(Integer userId, List<GroupNotification> notifications, boolean unreadOnly) {
+        if (notifications.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, GroupNotificationReceipt> receipts = new HashMap<>();
+        List<Integer> ids = notifications.stream().map(GroupNotification::getId).collect(Collectors.toList());
+        for (GroupNotificationReceipt receipt : groupNotificationReceiptRepository.findByIdUserIdAndIdNotificationIdIn(userId, ids)) {
+            receipts.put(receipt.getId().getNotificationId(), receipt);
+        }
+
+        List<NotificationDTO> result = new ArrayList<>();
+        for (GroupNotification notification : notifications) {
+            GroupNotificationReceipt receipt = receipts.get(notification.getId());
+            if (receipt != null && Boolean.TRUE.equals(receipt.getIsDismissed())) {
+                continue;
             }
+            boolean read = receipt != null && Boolean.TRUE.equals(receipt.getIsRead());
+            if (!unreadOnly || !read) {
+                result.add(convertToDTO(notification, userId, read));
+            }
+        }
+        return result;
+    }
+
+    // Markers only ever get set: an existing read or dismissed flag is never cleared
+    private void writeReceipts(Integer userId, Collection<Integer> groupNotificationIds, boolean read, boolean dismissed) {
+        if (groupNotificationIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer notificationId : groupNotificationIds) {
+            rows.add(new Object[] { notificationId, userId, read, dismissed });
         }
-        notificationRepository.deleteAllByIdIn(notificationIds);
+        jdbcTemplate.batchUpdate("INSERT INTO group_notification_receipts (notification_id, user_id, is_read, is_dismissed) "
+                + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE is_read = is_read OR VALUES(is_read), "
+                + "is_dismissed = is_dismissed OR VALUES(is_dismissed)", rows);
     }
 
     private Integer getAuthenticatedUserId() {
@@ -131,6 +430,10 @@ public class NotificationService {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new RuntimeException("User not authenticated");
         }
+        // Set by JwtAuthFilter, which has already loaded the user for this request
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
         String email = authentication.getName();
         User user = usersRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -150,4 +453,18 @@ public class NotificationService {
                 notification.getRelatedEntityType()
         );
     }
+
+    private NotificationDTO convertToDTO(GroupNotification notification, Integer userId, boolean read) {
+        return new NotificationDTO(
+                notification.getId(),
+                userId,
+                notification.getTitle(),
+                notification.getMessage(),
+                notification.getType(),
+                read,
+                notification.getCreatedAt(),
+                notification.getRelatedEntityId(),
+                notification.getRelatedEntityType()
+        );
+    }
 }
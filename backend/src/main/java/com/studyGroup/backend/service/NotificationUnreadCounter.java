@@ -0,0 +1,78 @@
+package com.studyGroup.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.studyGroup.backend.config.WebSocketConfig;
+import com.studyGroup.backend.dto.UnreadCountDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Unread notification count per user, so the bell doesn't need the inbox. A count is loaded from
+ * the database on first request and then moved by the changes NotificationService makes; each
+ * change is pushed to /queue/notifications/{userId}/unread-count. Only users whose count is cached
+ * get updates - the others load it when they next ask. Entries are reloaded after
+ * {@code notifications.unread-cache.ttl-seconds}, which also corrects any drift (a change racing
+ * the load, group membership changes).
+ * <p>
+ * The cache is per node. With the external broker relay a change made on another node doesn't move
+ * this node's counts, so there entries live only {@code notifications.unread-cache.relay-ttl-seconds}.
+ */
+@Service
+public class NotificationUnreadCounter {
+
+    private final StompPublisher stompPublisher;
+    private final Cache<Integer, AtomicLong> counts;
+
+    public NotificationUnreadCounter(StompPublisher stompPublisher,
+                                     @Value("${chat.broker.mode:simple}") String brokerMode,
+                                     @Value("${notifications.unread-cache.ttl-seconds:600}") long ttlSeconds,
+                                     @Value("${notifications.unread-cache.relay-ttl-seconds:5}") long relayTtlSeconds,
+                                     @Value("${notifications.unread-cache.max-users:100000}") long maxUsers) {
+        this.stompPublisher = stompPublisher;
+        boolean relay = WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode);
+        this.counts = CacheBuilder.newBuilder()
+                .expireAfterWrite(relay ? relayTtlSeconds : ttlSeconds, TimeUnit.SECONDS)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    public long get(Integer userId, LongSupplier loader) {
+        try {
+            return counts.get(userId, () -> new AtomicLong(loader.getAsLong())).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load unread count", e.getCause());
+        }
+    }
+
+    public void adjust(Integer userId, long delta) {
+        AtomicLong count = counts.getIfPresent(userId);
+        if (count != null && delta != 0) {
+            publish(userId, count.updateAndGet(value -> Math.max(0, value + delta)));
+        }
+    }
+
+    public void adjust(Collection<Integer> userIds, long delta) {
+        for (Integer userId : userIds) {
+            adjust(userId, delta);
+        }
+    }
+
+    public void reset(Integer userId) {
+        AtomicLong count = counts.getIfPresent(userId);
+        if (count != null) {
+            count.set(0);
+            publish(userId, 0);
+        }
+    }
+
+    private void publish(Integer userId, long count) {
+        stompPublisher.publish("/queue/notifications/" + userId + "/unread-count", new UnreadCountDTO(userId, count));
+    }
+}
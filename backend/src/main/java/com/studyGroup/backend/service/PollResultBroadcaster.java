@@ -0,0 +1,60 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.dto.PollOptionDTO;
+import com.studyGroup.backend.dto.PollResultsBroadcastDTO;
+import com.studyGroup.backend.model.PollOption;
+import com.studyGroup.backend.repository.PollOptionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns a stream of votes into at most one POLL_RESULTS frame per poll every
+ * {@code polls.broadcast.interval-ms}: votes only mark the poll as changed, and each tick sends a
+ * snapshot of all its option totals. The mark is cleared before the totals are read, so the
+ * last vote before voting goes quiet is always in a frame that gets sent.
+ */
+@Service
+@RequiredArgsConstructor
+public class PollResultBroadcaster {
+
+    private final PollOptionRepository pollOptionRepository;
+    private final PollVoteCounter pollVoteCounter;
+    private final ChatTailCache chatTailCache;
+    private final GroupBroadcastBatcher groupBroadcastBatcher;
+
+    // poll id -> group id, for polls with votes not yet broadcast
+    private final Map<Long, Long> changed = new ConcurrentHashMap<>();
+
+    public void voteChanged(Long pollId, Long groupId) {
+        changed.put(pollId, groupId);
+    }
+
+    @Scheduled(fixedDelayString = "${polls.broadcast.interval-ms:500}")
+    public void broadcastChanged() {
+        for (Long pollId : new ArrayList<>(changed.keySet())) {
+            Long groupId = changed.remove(pollId);
+            if (groupId == null) {
+                continue;
+            }
+            try {
+                List<PollOptionDTO> options = new ArrayList<>();
+                for (PollOption option : pollOptionRepository.findByPoll_IdOrderById(pollId)) {
+                    long total = pollVoteCounter.total(option.getId(), option.getVoteCount());
+                    options.add(new PollOptionDTO(option.getId(), option.getOptionText(), total));
+                    chatTailCache.updatePollOption(groupId, pollId, option.getId(),
+                            () -> pollVoteCounter.total(option.getId(), total));
+                }
+                groupBroadcastBatcher.publish(groupId, new PollResultsBroadcastDTO("POLL_RESULTS", pollId, options));
+            } catch (RuntimeException e) {
+                System.err.println("[PollResults] Broadcast for poll " + pollId + " failed: " + e.getMessage());
+                changed.putIfAbsent(pollId, groupId);
+            }
+        }
+    }
+}
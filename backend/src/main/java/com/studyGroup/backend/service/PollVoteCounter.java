@@ -0,0 +1,296 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.config.WebSocketConfig;
+import com.studyGroup.backend.repository.PollOptionRepository;
+import com.studyGroup.backend.repository.PollRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Absorbs poll votes in memory and writes them to poll_options in batches.
+ * <p>
+ * Each option has a small array of counters; a vote adds to the slot picked by the voting
+ * thread (a changed vote adds -1 on the old option), so concurrent votes rarely touch the same
+ * slot and never lock. Slots are never reset, so the total (count read from the database + all
+ * slots) is exact at any moment, and a flush writes exactly the change since the previous one
+ * ({@code vote_count = vote_count + delta}) in the same transaction as the new poll_votes rows.
+ * Votes hold the shared side of a read/write lock while they record the voter and add to the slots,
+ * and a flush takes the exclusive side just long enough to drain pending votes and read the slots,
+ * so each vote's row and count land in the same flush.
+ * Flushes run every {@code polls.votes.flush-ms} and at shutdown. After a flush the database
+ * count is read back, which also picks up votes written by other nodes.
+ * <p>
+ * With the external broker relay the vote row and both counts are written in one transaction
+ * while the request waits, and the totals returned are read back from it, so two nodes can
+ * never both count the same user. Nothing is held here in that mode.
+ */
+@Service
+@RequiredArgsConstructor
+public class PollVoteCounter {
+
+    private static final int STRIPES = 16;
+    private static final long IDLE_MILLIS = 10 * 60 * 1000;
+
+    private final PollOptionRepository pollOptionRepository;
+    private final PollRepository pollRepository;
+    private final GroupSequenceAllocator groupSequenceAllocator;
+    private final PollVoterIndex pollVoterIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    private final Map<Long, Tally> tallies = new ConcurrentHashMap<>();
+    // Shared by votes, exclusive while a flush takes its snapshot
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    /**
+     * Records {@code userId}'s vote for an option and returns the totals it changed: the chosen
+     * option, plus the option the vote moved away from if the user had voted differently before.
+     * Repeating the current vote changes nothing. The check is served from {@link PollVoterIndex}.
+     */
+    public VoteResult vote(Long pollId, Long optionId, Integer userId) {
+        if (WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            try {
+                return voteShared(pollId, optionId, userId);
+            } catch (PessimisticLockingFailureException e) {
+                // Two first votes by the same user raced on their gap locks; the loser retries once
+                return voteShared(pollId, optionId, userId);
+            }
+        }
+        Tally tally = tally(optionId);
+        if (!tally.pollId.equals(pollId)) {
+            throw new RuntimeException("Option not found");
+        }
+        snapshotLock.readLock().lock();
+        try {
+            PollVoterIndex.Cast cast = pollVoterIndex.cast(tally.pollId, optionId, userId);
+            if (!cast.changed()) {
+                return new VoteResult(false, tally.snapshot(), null);
+            }
+            Vote chosen = add(optionId, 1);
+            Vote previous = cast.previousOptionId() == null ? null : add(cast.previousOptionId(), -1);
+            return new VoteResult(true, chosen, previous);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private VoteResult voteShared(Long pollId, Long optionId, Integer userId) {
+        VoteResult result = transactionTemplate.execute(status -> {
+            PollOptionRepository.OptionTally chosen = pollOptionRepository.findTally(optionId)
+                    .filter(option -> option.getPollId().equals(pollId))
+                    .orElseThrow(() -> new RuntimeException("Option not found"));
+            PollVoterIndex.Cast cast = pollVoterIndex.castShared(pollId, optionId, userId);
+            if (!cast.changed()) {
+                return new VoteResult(false, readBack(chosen), null);
+            }
+            jdbcTemplate.update("UPDATE poll_options SET vote_count = vote_count + 1 WHERE id = ?", optionId);
+            Vote previous = null;
+            if (cast.previousOptionId() != null) {
+                jdbcTemplate.update("UPDATE poll_options SET vote_count = vote_count - 1 WHERE id = ?", cast.previousOptionId());
+                previous = pollOptionRepository.findTally(cast.previousOptionId()).map(this::readBack).orElse(null);
+            }
+            return new VoteResult(true, readBack(chosen), previous);
+        });
+        if (result.changed()) {
+            pollRepository.updateVoteMarker(pollId, groupSequenceAllocator.nextChange(result.chosen().groupId()));
+        }
+        return result;
+    }
+
+    private Vote readBack(PollOptionRepository.OptionTally option) {
+        Long count = jdbcTemplate.queryForObject("SELECT vote_count FROM poll_options WHERE id = ?", Long.class, option.getId());
+        return new Vote(option.getPollId(), option.getGroupId(), option.getId(), option.getOptionText(), count == null ? 0 : count);
+    }
+
+    private Vote add(Long optionId, int delta) {
+        int slot = (int) (Thread.currentThread().threadId() & (STRIPES - 1));
+        while (true) {
+            Tally tally = tally(optionId);
+            tally.lastVote = System.currentTimeMillis();
+            tally.slots.addAndGet(slot, delta);
+            if (tally.retired) {
+                // Being evicted; take the vote back and count it on a freshly loaded tally
+                tally.slots.addAndGet(slot, -delta);
+                Thread.onSpinWait();
+                continue;
+            }
+            return tally.snapshot();
+        }
+    }
+
+    /**
+     * Current total for an option: {@code persisted} (as just read from the database) when
+     * no votes for it are held here (always so in relay mode), otherwise the live count.
+     */
+    public long total(Long optionId, long persisted) {
+        Tally tally = tallies.get(optionId);
+        return tally == null ? persisted : tally.total();
+    }
+
+    @Scheduled(fixedDelayString = "${polls.votes.flush-ms:1000}")
+    public synchronized void flush() {
+        List<Tally> dirty = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        List<PollVoterIndex.PendingVote> votes;
+        snapshotLock.writeLock().lock();
+        try {
+            for (Tally tally : tallies.values()) {
+                long sum = tally.slotSum();
+                if (sum != tally.flushed) {
+                    dirty.add(tally);
+                    deltas.add(sum);
+                }
+            }
+            votes = pollVoterIndex.drainPending();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        if (!dirty.isEmpty() || !votes.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < dirty.size(); i++) {
+                rows.add(new Object[] { deltas.get(i) - dirty.get(i).flushed, dirty.get(i).optionId });
+            }
+            try {
+                // Vote rows and the counts they imply are committed together
+                transactionTemplate.executeWithoutResult(status -> {
+                    pollVoterIndex.write(votes);
+                    if (!rows.isEmpty()) {
+                        jdbcTemplate.batchUpdate("UPDATE poll_options SET vote_count = vote_count + ? WHERE id = ?", rows);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Nothing advanced; the same deltas and votes (plus newer ones) go out next time
+                System.err.println("[PollVotes] Flush of " + rows.size() + " option(s) and " + votes.size()
+                        + " vote(s) failed: " + e.getMessage());
+                pollVoterIndex.restorePending(votes);
+                return;
+            }
+            for (int i = 0; i < dirty.size(); i++) {
+                dirty.get(i).flushed = deltas.get(i);
+            }
+            if (!dirty.isEmpty()) {
+                refreshPersisted(dirty);
+            }
+
+            // Lets reconnecting clients find polls whose totals changed while they were away
+            Set<Long> pollIds = new HashSet<>();
+            dirty.forEach(tally -> pollIds.add(tally.pollId));
+            for (Long pollId : pollIds) {
+                Long groupId = pollRepository.findGroupId(pollId);
+                if (groupId != null) {
+                    pollRepository.updateVoteMarker(pollId, groupSequenceAllocator.nextChange(groupId));
+                }
+            }
+        }
+
+        long cutoff = System.currentTimeMillis() - IDLE_MILLIS;
+        tallies.values().removeIf(tally -> retireIfIdle(tally, cutoff));
+        pollVoterIndex.evictIdle();
+    }
+
+    // Only fully written tallies go; a vote racing the eviction either shows up here or sees retired
+    private boolean retireIfIdle(Tally tally, long cutoff) {
+        if (tally.lastVote >= cutoff) {
+            return false;
+        }
+        tally.retired = true;
+        if (tally.slotSum() != tally.flushed || tally.lastVote >= cutoff) {
+            tally.retired = false;
+            return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Tally tally(Long optionId) {
+        return tallies.computeIfAbsent(optionId, id -> pollOptionRepository.findTally(id)
+                .map(row -> new Tally(row.getId(), row.getPollId(), row.getGroupId(), row.getOptionText(), row.getVoteCount()))
+                .orElseThrow(() -> new RuntimeException("Option not found")));
+    }
+
+    // persisted = database count minus what this node has written, so total() stays database + unwritten votes
+    private void refreshPersisted(List<Tally> flushed) {
+        Map<Long, Tally> byId = new ConcurrentHashMap<>();
+        flushed.forEach(tally -> byId.put(tally.optionId, tally));
+        String placeholders = String.join(",", Collections.nCopies(byId.size(), "?"));
+        jdbcTemplate.query("SELECT id, vote_count FROM poll_options WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    Tally tally = byId.get(rs.getLong(1));
+                    tally.persisted = rs.getLong(2) - tally.flushed;
+                }, byId.keySet().toArray());
+    }
+
+    public record Vote(Long pollId, Long groupId, Long optionId, String optionText, long voteCount) {
+    }
+
+    /**
+     * {@code previous} is the option the vote moved away from, if any; {@code changed} is false
+     * when the user repeated their current vote.
+     */
+    public record VoteResult(boolean changed, Vote chosen, Vote previous) {
+    }
+
+    private static final class Tally {
+        private final Long optionId;
+        private final Long pollId;
+        private final Long groupId;
+        private final String optionText;
+        // Votes not made through this counter (loaded count, other nodes), excluding what we flushed
+        private volatile long persisted;
+        // Net votes since load; never reset
+        private final AtomicLongArray slots = new AtomicLongArray(STRIPES);
+        // Part of the slot sum already added to vote_count; only touched by flush()
+        private long flushed;
+        private volatile long lastVote = System.currentTimeMillis();
+        private volatile boolean retired;
+
+        private Tally(Long optionId, Long pollId, Long groupId, String optionText, Long persisted) {
+            this.optionId = optionId;
+            this.pollId = pollId;
+            this.groupId = groupId;
+            this.optionText = optionText;
+            this.persisted = persisted == null ? 0 : persisted;
+        }
+
+        long slotSum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += slots.get(i);
+            }
+            return sum;
+        }
+
+        long total() {
+            return persisted + slotSum();
+        }
+
+        Vote snapshot() {
+            return new Vote(pollId, groupId, optionId, optionText, total());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.repository.PollVoteRepository;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who voted for what, per poll, as one compressed bitmap of user ids per option. A poll's
+ * bitmaps are built from poll_votes the first time it is voted on after startup (or after it
+ * went idle); from then on checking and recording a vote is in memory only. Vote rows to write
+ * are kept here until {@link PollVoteCounter} flushes them together with the count deltas.
+ * <p>
+ * With the external broker relay several nodes take votes for the same polls, so per-node bitmaps
+ * could each accept the same user once; there {@link #castShared} asks poll_votes instead.
+ */
+@Service
+@RequiredArgsConstructor
+public class PollVoterIndex {
+
+    private static final long IDLE_MILLIS = 10 * 60 * 1000;
+
+    private final PollVoteRepository pollVoteRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, PollVoters> polls = new ConcurrentHashMap<>();
+    // (poll, user) -> vote not yet in poll_votes; insertion order keeps the batch stable
+    private final Map<PendingKey, PendingVote> pending = new LinkedHashMap<>();
+
+    /**
+     * Records {@code userId}'s vote for {@code optionId}. Returns what changed: nothing (the same
+     * vote again), a new vote, or a move from another option.
+     */
+    public Cast cast(Long pollId, Long optionId, Integer userId) {
+        while (true) {
+            PollVoters voters = polls.computeIfAbsent(pollId, this::load);
+            synchronized (voters) {
+                // Retry if evictIdle() dropped this poll between lookup and lock
+                if (polls.get(pollId) != voters) {
+                    continue;
+                }
+                voters.lastAccess = System.currentTimeMillis();
+                Long previous = null;
+                for (Map.Entry<Long, RoaringBitmap> option : voters.byOption.entrySet()) {
+                    if (option.getValue().contains(userId)) {
+                        previous = option.getKey();
+                        break;
+                    }
+                }
+                if (optionId.equals(previous)) {
+                    return new Cast(false, null);
+                }
+                if (previous != null) {
+                    voters.byOption.get(previous).remove(userId);
+                }
+                voters.byOption.computeIfAbsent(optionId, k -> new RoaringBitmap()).add(userId);
+                synchronized (pending) {
+                    pending.put(new PendingKey(pollId, userId), new PendingVote(pollId, userId, optionId, LocalDateTime.now()));
+                }
+                return new Cast(true, previous);
+            }
+        }
+    }
+
+    /**
+     * Records a vote directly in poll_votes, for nodes sharing polls; runs inside the caller's
+     * transaction. The row lock keeps the previous option stable until the upsert, and MySQL
+     * reports 1 affected row for an insert, 2 for a changed row and 0 for a repeated vote.
+     */
+    Cast castShared(Long pollId, Long optionId, Integer userId) {
+        List<Long> previous = jdbcTemplate.queryForList(
+                "SELECT option_id FROM poll_votes WHERE poll_id = ? AND user_id = ? FOR UPDATE",
+                Long.class, pollId, userId);
+        int affected = jdbcTemplate.update("INSERT INTO poll_votes (poll_id, user_id, option_id, voted_at) VALUES (?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE voted_at = IF(option_id = VALUES(option_id), voted_at, VALUES(voted_at)), "
+                + "option_id = VALUES(option_id)",
+                pollId, userId, optionId, Timestamp.valueOf(LocalDateTime.now()));
+        if (affected == 0) {
+            return new Cast(false, null);
+        }
+        return new Cast(true, affected == 2 && !previous.isEmpty() ? previous.get(0) : null);
+    }
+
+    /**
+     * Takes the votes waiting to be written.
+     */
+    List<PendingVote> drainPending() {
+        synchronized (pending) {
+            List<PendingVote> votes = new ArrayList<>(pending.values());
+            pending.clear();
+            return votes;
+        }
+    }
+
+    /**
+     * Puts back votes whose write failed, unless the user has voted again since.
+     */
+    void restorePending(List<PendingVote> votes) {
+        synchronized (pending) {
+            for (PendingVote vote : votes) {
+                pending.putIfAbsent(new PendingKey(vote.pollId(), vote.userId()), vote);
+            }
+        }
+    }
+
+    /**
+     * Upserts votes into poll_votes; runs inside the caller's transaction.
+     */
+    void write(List<PendingVote> votes) {
+        if (votes.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (PendingVote vote : votes) {
+            rows.add(new Object[] { vote.pollId(), vote.userId(), vote.optionId(), Timestamp.valueOf(vote.votedAt()) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO poll_votes (poll_id, user_id, option_id, voted_at) VALUES (?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE option_id = VALUES(option_id), voted_at = VALUES(voted_at)", rows);
+    }
+
+    /**
+     * Drops the bitmaps of polls nobody voted on for a while; called after each flush, so
+     * nothing of theirs is pending.
+     */
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_MILLIS;
+        Set<Long> pendingPolls = new HashSet<>();
+        synchronized (pending) {
+            pending.keySet().forEach(key -> pendingPolls.add(key.pollId()));
+        }
+        polls.entrySet().removeIf(e -> {
+            synchronized (e.getValue()) {
+                return e.getValue().lastAccess < cutoff && !pendingPolls.contains(e.getKey());
+            }
+        });
+    }
+
+    private PollVoters load(Long pollId) {
+        PollVoters voters = new PollVoters();
+        for (PollVoteRepository.Voter voter : pollVoteRepository.findVoters(pollId)) {
+            voters.byOption.computeIfAbsent(voter.getOptionId(), k -> new RoaringBitmap()).add(voter.getUserId());
+        }
+        voters.byOption.values().forEach(RoaringBitmap::runOptimize);
+        return voters;
+    }
+
+    /**
+     * {@code changed} is false for a repeat of the user's current vote; {@code previousOptionId}
+     * is set when the vote moved from another option.
+     */
+    public record Cast(boolean changed, Long previousOptionId) {
+    }
+
+    record PendingVote(Long pollId, Integer userId, Long optionId, LocalDateTime votedAt) {
+    }
+
+    private record PendingKey(Long pollId, Integer userId) {
+    }
+
+    private static final class PollVoters {
+        // option id -> user ids that currently vote for it
+        private final Map<Long, RoaringBitmap> byOption = new HashMap<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,303 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.dto.PresenceChangeDTO;
+import com.studyGroup.backend.dto.PresenceDiffDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Who is online and who is typing in each group, kept in memory only. A STOMP session is online
+ * in a group while it is subscribed to the group's topic; typing comes from /app/typing/{groupId}.
+ * Entries expire on their own (a session that stops sending frames, typing that isn't renewed),
+ * so a lost DISCONNECT can't leave anyone online forever.
+ * <p>
+ * Changes are not sent as they happen: every {@code chat.presence.flush-ms} each changed group gets
+ * one frame on /topic/group/{id}/presence listing the users whose status changed.
+ * <p>
+ * The registry is per node, also with the external broker relay: a node reports only the sessions
+ * connected to it.
+ */
+@Service
+public class PresenceRegistry {
+
+    public static final String ONLINE = "ONLINE";
+    public static final String TYPING = "TYPING";
+    public static final String OFFLINE = "OFFLINE";
+
+    private final StompPublisher stompPublisher;
+
+    @Value("${chat.presence.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${chat.presence.typing-ttl-seconds:5}")
+    private long typingTtlSeconds;
+
+    private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, GroupPresence> groups = new ConcurrentHashMap<>();
+
+    // Lazy: the publisher needs the broker, whose inbound channel needs this registry
+    public PresenceRegistry(@Lazy StompPublisher stompPublisher) {
+        this.stompPublisher = stompPublisher;
+    }
+
+    public void connected(String sessionId, Integer userId) {
+        if (userId != null) {
+            sessions.put(sessionId, new SessionInfo(userId));
+        }
+    }
+
+    /**
+     * User id the session authenticated as on CONNECT, or null.
+     */
+    public Integer userId(String sessionId) {
+        SessionInfo session = sessions.get(sessionId);
+        return session == null ? null : session.userId;
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, Long groupId) {
+        SessionInfo session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            session.subscriptions.put(subscriptionId, groupId);
+        }
+        update(groupId, group -> group.entries.computeIfAbsent(sessionId, k -> new Entry(session.userId)).expiresAt = expiry());
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        SessionInfo session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        Long groupId;
+        synchronized (session) {
+            groupId = session.subscriptions.remove(subscriptionId);
+            // Still online if another subscription of this session covers the same group
+            if (groupId == null || session.subscriptions.containsValue(groupId)) {
+                return;
+            }
+        }
+        leave(sessionId, groupId);
+    }
+
+    public void disconnected(String sessionId) {
+        SessionInfo session = sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        Set<Long> groupIds;
+        synchronized (session) {
+            groupIds = new HashSet<>(session.subscriptions.values());
+        }
+        for (Long groupId : groupIds) {
+            leave(sessionId, groupId);
+        }
+    }
+
+    public void typing(String sessionId, Long groupId, boolean typing) {
+        SessionInfo session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        update(groupId, group -> {
+            Entry entry = group.entries.computeIfAbsent(sessionId, k -> new Entry(session.userId));
+            entry.expiresAt = expiry();
+            entry.typingUntil = typing ? System.currentTimeMillis() + typingTtlSeconds * 1000 : 0;
+        });
+    }
+
+    /**
+     * Any frame from a session (including heart-beats) keeps its entries alive. Renewal is
+     * skipped until a quarter of the TTL has passed, so this is a map lookup for most frames.
+     */
+    public void touch(String sessionId) {
+        SessionInfo session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastTouch < ttlSeconds * 250) {
+            return;
+        }
+        session.lastTouch = now;
+        Set<Long> groupIds;
+        synchronized (session) {
+            groupIds = new HashSet<>(session.subscriptions.values());
+        }
+        for (Long groupId : groupIds) {
+            GroupPresence group = groups.get(groupId);
+            if (group != null) {
+                synchronized (group) {
+                    Entry entry = group.entries.get(sessionId);
+                    if (entry != null) {
+                        entry.expiresAt = expiry();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Current status of everyone online in a group, for clients that just subscribed.
+     */
+    public List<PresenceChangeDTO> snapshot(Long groupId) {
+        GroupPresence group = groups.get(groupId);
+        List<PresenceChangeDTO> result = new ArrayList<>();
+        if (group != null) {
+            synchronized (group) {
+                group.statuses(System.currentTimeMillis())
+                        .forEach((userId, status) -> result.add(new PresenceChangeDTO(userId, status)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of local sessions currently subscribed to a group's topic.
+     */
+    public int sessionCount(Long groupId) {
+        GroupPresence group = groups.get(groupId);
+        if (group == null) {
+            return 0;
+        }
+        synchronized (group) {
+            return group.entries.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.flush-ms:300}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, GroupPresence> e : groups.entrySet()) {
+            Long groupId = e.getKey();
+            GroupPresence group = e.getValue();
+            List<PresenceChangeDTO> changes;
+            synchronized (group) {
+                if (!group.dirty && now < group.nextDeadline) {
+                    continue;
+                }
+                group.entries.values().removeIf(entry -> entry.expiresAt <= now);
+                Map<Integer, String> current = group.statuses(now);
+                changes = new ArrayList<>();
+                for (Map.Entry<Integer, String> status : current.entrySet()) {
+                    if (!status.getValue().equals(group.published.get(status.getKey()))) {
+                        changes.add(new PresenceChangeDTO(status.getKey(), status.getValue()));
+                    }
+                }
+                for (Integer userId : group.published.keySet()) {
+                    if (!current.containsKey(userId)) {
+                        changes.add(new PresenceChangeDTO(userId, OFFLINE));
+                    }
+                }
+                group.published = current;
+                group.dirty = false;
+                group.nextDeadline = group.nextDeadline(now);
+                if (group.entries.isEmpty()) {
+                    groups.remove(groupId, group);
+                }
+            }
+            if (!changes.isEmpty()) {
+                PresenceDiffDTO diff = new PresenceDiffDTO();
+                diff.setGroupId(groupId);
+                diff.setChanges(changes);
+                stompPublisher.publish("/topic/group/" + groupId + "/presence", diff);
+            }
+        }
+    }
+
+    // Retries if flush() dropped the group (it had emptied) between lookup and lock
+    private void update(Long groupId, Consumer<GroupPresence> change) {
+        while (true) {
+            GroupPresence group = groups.computeIfAbsent(groupId, k -> new GroupPresence());
+            synchronized (group) {
+                if (groups.get(groupId) == group) {
+                    change.accept(group);
+                    group.dirty = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void leave(String sessionId, Long groupId) {
+        GroupPresence group = groups.get(groupId);
+        if (group == null) {
+            return;
+        }
+        synchronized (group) {
+            if (group.entries.remove(sessionId) != null) {
+                group.dirty = true;
+            }
+        }
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + ttlSeconds * 1000;
+    }
+
+    private static final class SessionInfo {
+        private final Integer userId;
+        // subscription id -> group id
+        private final Map<String, Long> subscriptions = new HashMap<>();
+        private volatile long lastTouch = System.currentTimeMillis();
+
+        private SessionInfo(Integer userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Entry {
+        private final Integer userId;
+        private long expiresAt;
+        private long typingUntil;
+
+        private Entry(Integer userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class GroupPresence {
+        // session id -> entry; a user with several tabs has several entries
+        private final Map<String, Entry> entries = new HashMap<>();
+        // status last sent to subscribers, per user
+        private Map<Integer, String> published = new HashMap<>();
+        private boolean dirty;
+        // earliest moment an entry or a typing flag runs out
+        private long nextDeadline = Long.MAX_VALUE;
+
+        Map<Integer, String> statuses(long now) {
+            Map<Integer, String> statuses = new HashMap<>();
+            for (Entry entry : entries.values()) {
+                if (entry.typingUntil > now) {
+                    statuses.put(entry.userId, TYPING);
+                } else {
+                    statuses.putIfAbsent(entry.userId, ONLINE);
+                }
+            }
+            return statuses;
+        }
+
+        long nextDeadline(long now) {
+            long deadline = Long.MAX_VALUE;
+            for (Entry entry : entries.values()) {
+                deadline = Math.min(deadline, entry.expiresAt);
+                if (entry.typingUntil > now) {
+                    deadline = Math.min(deadline, entry.typingUntil);
+                }
+            }
+            return deadline;
+        }
+    }
+}
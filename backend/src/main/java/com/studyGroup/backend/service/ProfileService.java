@@ -8,9 +8,11 @@ import com.studyGroup.backend.repository.ProfileRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -62,6 +64,7 @@ public class ProfileService {
         });
     }
 
+    @Transactional
     public Profile enrollInCourse(String email, String courseId) {
         Profile profile = profileRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User profile not found."));
@@ -82,11 +85,10 @@ public class ProfileService {
                 // Send Notification
                 com.studyGroup.backend.model.User user = usersRepository.findByEmail(email).orElse(null);
                 if (user != null) {
-                    notificationService.createNotification(
-                            user.getId(),
+                    notificationService.createUpdateNotifications(
+                            List.of(user.getId()),
                             "Course Enrollment",
                             "You have successfully enrolled in " + course.getCourseName(),
-                            "Updates",
                             null,
                             null);
                 }
@@ -100,6 +102,7 @@ public class ProfileService {
         }
     }
 
+    @Transactional
     public Profile unenrollFromCourse(String email, String courseId) {
         Profile profile = profileRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User profile not found."));
@@ -121,11 +124,10 @@ public class ProfileService {
                 // Send Notification
                 com.studyGroup.backend.model.User user = usersRepository.findByEmail(email).orElse(null);
                 if (user != null) {
-                    notificationService.createNotification(
-                            user.getId(),
+                    notificationService.createUpdateNotifications(
+                            List.of(user.getId()),
                             "Course Unenrollment",
                             "You have successfully unenrolled from " + courseName,
-                            "Updates",
                             null,
                             null);
                 }
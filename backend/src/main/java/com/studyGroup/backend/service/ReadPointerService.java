@@ -0,0 +1,190 @@
+package com.studyGroup.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.studyGroup.backend.model.ReadPointer;
+import com.studyGroup.backend.repository.GroupMemberRepository;
+import com.studyGroup.backend.repository.ReadPointerRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user read pointers (last read seq per group) and the unread counts derived from them:
+ * unread = latest seq in the group - last read seq, so no messages are ever counted. Only messages
+ * take chat seqs (deletions and poll votes move the group's change cursor instead), so the
+ * difference is a count of messages.
+ * <p>
+ * A user's pointers are loaded once and then kept in memory; moves are applied there and written
+ * to read_pointers every {@code chat.read.flush-ms} as one batched upsert. Pointers only move
+ * forward (GREATEST on write), so a lost or out-of-order update can at worst overcount.
+ * A move is not checked against the group's latest seq until it is flushed, so read frames never
+ * touch the database. Membership checks for those frames are cached for
+ * {@code chat.read.membership-ttl-seconds}.
+ * A member without a pointer starts at the group's current seq the first time counts are asked for.
+ */
+@Service
+public class ReadPointerService {
+
+    private static final long IDLE_MILLIS = 30 * 60 * 1000;
+
+    private final ReadPointerRepository readPointerRepository;
+    private final GroupMemberRepository groupMemberRepository;
+    private final GroupSequenceAllocator groupSequenceAllocator;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, UserPointers> users = new ConcurrentHashMap<>();
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+    private final Cache<Key, Boolean> memberships;
+
+    public ReadPointerService(ReadPointerRepository readPointerRepository, GroupMemberRepository groupMemberRepository,
+                              GroupSequenceAllocator groupSequenceAllocator, JdbcTemplate jdbcTemplate,
+                              @Value("${chat.read.membership-ttl-seconds:60}") long membershipTtlSeconds) {
+        this.readPointerRepository = readPointerRepository;
+        this.groupMemberRepository = groupMemberRepository;
+        this.groupSequenceAllocator = groupSequenceAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.memberships = CacheBuilder.newBuilder()
+                .expireAfterWrite(membershipTtlSeconds, TimeUnit.SECONDS)
+                .maximumSize(100000)
+                .build();
+    }
+
+    /**
+     * Moves the user's pointer in a group up to {@code seq}. A seq past the latest message is
+     * pulled back to it on the next flush.
+     */
+    public void markRead(Integer userId, Long groupId, Long seq) {
+        if (userId == null || groupId == null || seq == null) {
+            return;
+        }
+        UserPointers pointers = pointers(userId);
+        Long previous = pointers.lastRead.get(groupId);
+        if (previous == null || previous < seq) {
+            pointers.lastRead.merge(groupId, seq, Math::max);
+            dirty.add(new Key(userId, groupId));
+        }
+    }
+
+    /**
+     * Whether the user belongs to the group, cached so frequent read frames don't each query it.
+     */
+    public boolean isMember(Integer userId, Long groupId) {
+        try {
+            return memberships.get(new Key(userId, groupId),
+                    () -> groupMemberRepository.existsByGroupGroupIdAndUser_Id(groupId, userId));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not check group membership", e.getCause());
+        }
+    }
+
+    /**
+     * Unread message counts for one user across several groups, with one lookup of the groups'
+     * latest seq numbers.
+     */
+    public Map<Long, Long> unreadCounts(Integer userId, Collection<Long> groupIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (groupIds.isEmpty()) {
+            return counts;
+        }
+        Map<Long, Long> latest = groupSequenceAllocator.latest(groupIds);
+        UserPointers pointers = pointers(userId);
+        for (Long groupId : groupIds) {
+            long groupLatest = latest.getOrDefault(groupId, 0L);
+            Long lastRead = pointers.lastRead.get(groupId);
+            if (lastRead == null) {
+                pointers.lastRead.putIfAbsent(groupId, groupLatest);
+                dirty.add(new Key(userId, groupId));
+                lastRead = pointers.lastRead.get(groupId);
+            }
+            counts.put(groupId, Math.max(0, groupLatest - lastRead));
+        }
+        return counts;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read.flush-ms:2000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Key> keys = new ArrayList<>(dirty);
+        Set<Long> groupIds = new HashSet<>();
+        keys.forEach(key -> groupIds.add(key.groupId));
+        Map<Long, Long> latest = groupSequenceAllocator.latest(groupIds);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Key key : keys) {
+            dirty.remove(key);
+            UserPointers pointers = users.get(key.userId);
+            if (pointers == null) {
+                continue;
+            }
+            // Never past the latest message; a move racing this can at worst be held back (an overcount)
+            long groupLatest = latest.getOrDefault(key.groupId, 0L);
+            Long lastRead = pointers.lastRead.computeIfPresent(key.groupId, (id, seq) -> Math.min(seq, groupLatest));
+            if (lastRead != null) {
+                rows.add(new Object[] { key.groupId, key.userId, lastRead });
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO read_pointers (group_id, user_id, last_read_seq) VALUES (?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE last_read_seq = GREATEST(last_read_seq, VALUES(last_read_seq))", rows);
+        } catch (RuntimeException e) {
+            System.err.println("[ReadPointers] Flush of " + rows.size() + " pointer(s) failed, retrying later: " + e.getMessage());
+            for (Object[] row : rows) {
+                dirty.add(new Key((Integer) row[1], (Long) row[0]));
+            }
+        }
+    }
+
+    // Forgets users not seen for a while once their pointers are written
+    @Scheduled(fixedRate = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_MILLIS;
+        Set<Integer> pendingUsers = new HashSet<>();
+        dirty.forEach(key -> pendingUsers.add(key.userId));
+        users.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff && !pendingUsers.contains(e.getKey()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private UserPointers pointers(Integer userId) {
+        UserPointers pointers = users.computeIfAbsent(userId, id -> {
+            UserPointers loaded = new UserPointers();
+            for (ReadPointer pointer : readPointerRepository.findByIdUserId(id)) {
+                loaded.lastRead.put(pointer.getId().getGroupId(), pointer.getLastReadSeq());
+            }
+            return loaded;
+        });
+        pointers.lastAccess = System.currentTimeMillis();
+        return pointers;
+    }
+
+    private record Key(Integer userId, Long groupId) {
+    }
+
+    private static final class UserPointers {
+        // group id -> last read seq
+        private final Map<Long, Long> lastRead = new ConcurrentHashMap<>();
+        private volatile long lastAccess;
+    }
+}
@@ -0,0 +1,75 @@
+package com.studyGroup.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.studyGroup.backend.config.PayloadFormat;
+import com.studyGroup.backend.config.PayloadFormatInterceptor;
+import com.studyGroup.backend.config.WebSocketConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sends a payload to a broker destination in every format someone may be reading it in.
+ * JSON subscribers use the destination itself; binary subscribers use the format's copy of it
+ * (see {@link PayloadFormat}). Each format is encoded once per broadcast, and binary formats
+ * are skipped when no local session uses them. With the external relay, sessions on other
+ * nodes can't be seen from here, so the formats in {@code chat.payload.binary-formats} are always sent.
+ */
+@Service
+public class StompPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PayloadFormatInterceptor payloadFormatInterceptor;
+    private final Map<PayloadFormat, ObjectMapper> binaryMappers = new EnumMap<>(PayloadFormat.class);
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    public StompPublisher(SimpMessagingTemplate messagingTemplate, PayloadFormatInterceptor payloadFormatInterceptor,
+                          Jackson2ObjectMapperBuilder objectMapperBuilder,
+                          @Value("${chat.payload.binary-formats:cbor,smile}") String binaryFormats) {
+        this.messagingTemplate = messagingTemplate;
+        this.payloadFormatInterceptor = payloadFormatInterceptor;
+        // Same modules and date handling as the JSON mapper, so every format carries the same fields
+        for (String name : binaryFormats.split(",")) {
+            PayloadFormat format = PayloadFormat.fromHeader(name);
+            if (format == PayloadFormat.CBOR) {
+                binaryMappers.put(format, objectMapperBuilder.factory(new CBORFactory()).build());
+            } else if (format == PayloadFormat.SMILE) {
+                binaryMappers.put(format, objectMapperBuilder.factory(new SmileFactory()).build());
+            }
+        }
+    }
+
+    public void publish(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+
+        boolean relay = WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode);
+        for (Map.Entry<PayloadFormat, ObjectMapper> entry : binaryMappers.entrySet()) {
+            PayloadFormat format = entry.getKey();
+            if (!relay && !payloadFormatInterceptor.hasSessions(format)) {
+                continue;
+            }
+            try {
+                byte[] body = entry.getValue().writeValueAsBytes(payload);
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                headers.setContentType(format.getContentType());
+                headers.setLeaveMutable(true);
+                messagingTemplate.send(format.destination(destination),
+                        MessageBuilder.createMessage(body, headers.getMessageHeaders()));
+            } catch (JsonProcessingException e) {
+                System.err.println("[StompPublisher] Could not encode " + format + " payload for " + destination + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -6,13 +6,16 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.studyGroup.backend.config.AuthenticatedUser;
 import com.studyGroup.backend.model.Profile;
 import com.studyGroup.backend.model.User;
 import com.studyGroup.backend.repository.ProfileRepository;
 import com.studyGroup.backend.repository.UsersRepository;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -41,8 +44,7 @@ public class UserService implements UserDetailsService {
         }
         User user = userOptional.get();
 
-        return new org.springframework.security.core.userdetails.User(user.getEmail(), user.getPassword(),
-                new ArrayList<>());
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(), new ArrayList<>());
     }
 
     public Optional<User> getUserByEmail(String email) {
@@ -53,6 +55,8 @@ public class UserService implements UserDetailsService {
         return usersRepository.existsByEmail(email);
     }
 
+    // User, profile and welcome notification commit together; the welcome push waits for the commit
+    @Transactional
     public String registerUser(User user) {
         if (usersRepository.existsByEmail(user.getEmail())) {
             return "401::Email Id already exists";
@@ -66,11 +70,10 @@ public class UserService implements UserDetailsService {
         profileRepository.save(profile);
 
         // Send Welcome Notification
-        notificationService.createNotification(
-                savedUser.getId(),
+        notificationService.createUpdateNotifications(
+                List.of(savedUser.getId()),
                 "Welcome to Study Sphere",
                 "Welcome to the study sphere ,enrolled the course and also joined the group",
-                "Updates",
                 null,
                 null);
 
@@ -0,0 +1,163 @@
+package com.studyGroup.backend.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Just enough of a STOMP 1.2 broker for tests: CONNECT, SUBSCRIBE, UNSUBSCRIBE, SEND (fanned out
+ * to every subscription on the destination), receipts and DISCONNECT. No heart-beats, no acks.
+ */
+class EmbeddedStompBroker implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final StompEncoder encoder = new StompEncoder();
+    // connection -> subscription id -> destination
+    private final Map<Connection, Map<String, String>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    EmbeddedStompBroker() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "stomp-broker-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Connection connection : subscriptions.keySet()) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Connection connection = new Connection(serverSocket.accept());
+                subscriptions.put(connection, new ConcurrentHashMap<>());
+                Thread reader = new Thread(connection::read, "stomp-broker-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Connection connection, Message<byte[]> frame) throws IOException {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+        if (headers.getCommand() == null) {
+            return; // heart-beat
+        }
+        switch (headers.getCommand()) {
+            case CONNECT, STOMP -> connection.send(StompCommand.CONNECTED, Map.of("version", "1.2", "heart-beat", "0,0"), null);
+            case SUBSCRIBE -> subscriptions.get(connection).put(headers.getSubscriptionId(), headers.getDestination());
+            case UNSUBSCRIBE -> subscriptions.get(connection).remove(headers.getSubscriptionId());
+            case SEND -> publish(headers, frame.getPayload());
+            case DISCONNECT -> {
+                sendReceipt(connection, headers);
+                connection.close();
+                return;
+            }
+            default -> {
+            }
+        }
+        sendReceipt(connection, headers);
+    }
+
+    private void publish(StompHeaderAccessor send, byte[] payload) throws IOException {
+        for (Map.Entry<Connection, Map<String, String>> entry : subscriptions.entrySet()) {
+            for (Map.Entry<String, String> subscription : entry.getValue().entrySet()) {
+                if (subscription.getValue().equals(send.getDestination())) {
+                    Map<String, String> headers = new HashMap<>();
+                    headers.put("destination", send.getDestination());
+                    headers.put("subscription", subscription.getKey());
+                    headers.put("message-id", String.valueOf(messageIds.incrementAndGet()));
+                    if (send.getFirstNativeHeader("content-type") != null) {
+                        headers.put("content-type", send.getFirstNativeHeader("content-type"));
+                    }
+                    entry.getKey().send(StompCommand.MESSAGE, headers, payload);
+                }
+            }
+        }
+    }
+
+    private void sendReceipt(Connection connection, StompHeaderAccessor headers) throws IOException {
+        if (headers.getReceipt() != null) {
+            connection.send(StompCommand.RECEIPT, Map.of("receipt-id", headers.getReceipt()), null);
+        }
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final OutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        void read() {
+            StompDecoder decoder = new StompDecoder();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            byte[] chunk = new byte[8192];
+            try (InputStream in = socket.getInputStream()) {
+                int n;
+                while ((n = in.read(chunk)) >= 0) {
+                    buffer.put(chunk, 0, n);
+                    buffer.flip();
+                    List<Message<byte[]>> frames = decoder.decode(buffer);
+                    buffer.compact();
+                    for (Message<byte[]> frame : frames) {
+                        handle(this, frame);
+                    }
+                }
+            } catch (IOException e) {
+                // connection closed
+            } finally {
+                close();
+            }
+        }
+
+        synchronized void send(StompCommand command, Map<String, String> headers, byte[] payload) throws IOException {
+            MultiValueMap<String, String> nativeHeaders = new LinkedMultiValueMap<>();
+            headers.forEach(nativeHeaders::add);
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(command, nativeHeaders);
+            byte[] body = payload == null ? new byte[0] : payload;
+            out.write(encoder.encode(MessageBuilder.createMessage(body, accessor.getMessageHeaders())));
+            out.flush();
+        }
+
+        void close() {
+            subscriptions.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.studyGroup.backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A client whose first send never completes: coalescing keeps its queue bounded, and the hard
+ * limits close it when frames that can't be coalesced pile up.
+ */
+class SlowConsumerGuardTest {
+
+    private static final String BODY = "x".repeat(200);
+
+    private final CountDownLatch stuck = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<WebSocketMessage<?>> sent = new CopyOnWriteArrayList<>();
+    private final WebSocketSession raw = mock(WebSocketSession.class);
+
+    @AfterEach
+    void releaseSender() {
+        release.countDown();
+    }
+
+    @Test
+    void coalescingQueuesOneResyncHintPerSubscription() throws Exception {
+        WebSocketSession session = guarded(LaggingSessionPolicy.COALESCE, 50);
+        session.sendMessage(broadcast(0));
+        stuck.await();
+        for (int i = 1; i < 500; i++) {
+            session.sendMessage(broadcast(i));
+        }
+        release.countDown();
+        awaitQuiet();
+
+        verify(raw, never()).close(any());
+        long hints = sent.stream().filter(m -> m.getPayload().toString().contains("RESYNC_REQUIRED")).count();
+        assertEquals(1, hints);
+        // The stuck frame, at most a buffer's worth of broadcasts and the hint
+        assertTrue(sent.size() < 10, "sent " + sent.size() + " frames");
+    }
+
+    @Test
+    void hardMessageLimitClosesTheSession() throws Exception {
+        WebSocketSession session = guarded(LaggingSessionPolicy.COALESCE, 50);
+        for (int i = 0; i < 60; i++) {
+            session.sendMessage(new TextMessage("RECEIPT\nreceipt-id:" + i + "\n\n\0"));
+        }
+
+        verify(raw, timeout(1000)).close(SlowConsumerGuard.RESYNC_REQUIRED);
+    }
+
+    private WebSocketSession guarded(LaggingSessionPolicy policy, int maxQueuedMessages) throws Exception {
+        when(raw.getId()).thenReturn("session-1");
+        doAnswer(invocation -> {
+            stuck.countDown();
+            release.await();
+            sent.add(invocation.getArgument(0));
+            return null;
+        }).when(raw).sendMessage(any());
+
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        SlowConsumerGuard guard = new SlowConsumerGuard(handler, policy, 60_000, 1000, 1_000_000,
+                maxQueuedMessages, new SimpleMeterRegistry());
+        guard.afterConnectionEstablished(raw);
+        ArgumentCaptor<WebSocketSession> session = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(session.capture());
+        return session.getValue();
+    }
+
+    private static TextMessage broadcast(int n) {
+        return new TextMessage("MESSAGE\ndestination:/topic/group/1\nsubscription:sub-1\nmessage-id:" + n
+                + "\ncontent-type:application/json\n\n" + BODY + "\0");
+    }
+
+    private void awaitQuiet() throws InterruptedException {
+        int last = -1;
+        while (sent.size() != last) {
+            last = sent.size();
+            Thread.sleep(200);
+        }
+    }
+}
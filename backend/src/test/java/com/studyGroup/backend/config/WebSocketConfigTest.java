@@ -0,0 +1,192 @@
+package com.studyGroup.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Broker settings for both modes, and fan-out across two instances relaying to one external broker.
+ */
+class WebSocketConfigTest {
+
+    @Test
+    void relayModeUsesTheExternalBroker() {
+        WebSocketConfig config = new WebSocketConfig();
+        ReflectionTestUtils.setField(config, "brokerMode", "relay");
+        ReflectionTestUtils.setField(config, "relayHost", "broker.internal");
+        ReflectionTestUtils.setField(config, "relayPort", 61614);
+        ReflectionTestUtils.setField(config, "relayClientLogin", "chat");
+        ReflectionTestUtils.setField(config, "relayClientPasscode", "secret");
+        ReflectionTestUtils.setField(config, "relaySystemLogin", "system");
+        ReflectionTestUtils.setField(config, "relaySystemPasscode", "system-secret");
+        ReflectionTestUtils.setField(config, "relayVirtualHost", "chat-vhost");
+
+        TestRegistry registry = new TestRegistry();
+        config.configureMessageBroker(registry);
+
+        StompBrokerRelayMessageHandler relay = registry.relay();
+        assertThat(relay).isNotNull();
+        assertThat(registry.simpleBroker()).isNull();
+        assertThat(relay.getDestinationPrefixes()).containsExactlyInAnyOrder("/topic", "/queue");
+        assertThat(relay.getRelayHost()).isEqualTo("broker.internal");
+        assertThat(relay.getRelayPort()).isEqualTo(61614);
+        assertThat(relay.getClientLogin()).isEqualTo("chat");
+        assertThat(relay.getSystemLogin()).isEqualTo("system");
+        assertThat(relay.getVirtualHost()).isEqualTo("chat-vhost");
+    }
+
+    @Test
+    void simpleModeKeepsTheInProcessBroker() {
+        WebSocketConfig config = new WebSocketConfig();
+        ReflectionTestUtils.setField(config, "brokerMode", "simple");
+
+        TestRegistry registry = new TestRegistry();
+        config.configureMessageBroker(registry);
+
+        assertThat(registry.relay()).isNull();
+        assertThat(registry.simpleBroker()).isNotNull();
+        assertThat(registry.simpleBroker().getDestinationPrefixes()).containsExactlyInAnyOrder("/topic", "/queue");
+    }
+
+    @Test
+    void relayInstancesBothDeliverWhatOnePublishes() throws Exception {
+        try (EmbeddedStompBroker broker = new EmbeddedStompBroker()) {
+            Instance first = new Instance(broker.port());
+            Instance second = new Instance(broker.port());
+            try {
+                first.subscribe("alice", "/topic/group/1");
+                second.subscribe("bob", "/topic/group/1");
+
+                first.publish("/topic/group/1", "hello");
+
+                assertThat(first.nextMessage("alice")).isEqualTo("hello");
+                assertThat(second.nextMessage("bob")).isEqualTo("hello");
+            } finally {
+                first.stop();
+                second.stop();
+            }
+        }
+    }
+
+    /** One backend instance in relay mode: its relay handler plus what it sends to its own clients. */
+    private static class Instance {
+
+        private final BlockingQueue<Message<?>> toClients = new LinkedBlockingQueue<>();
+        private final TestRegistry registry;
+        private final StompBrokerRelayMessageHandler relay;
+
+        Instance(int brokerPort) throws InterruptedException {
+            WebSocketConfig config = new WebSocketConfig();
+            ReflectionTestUtils.setField(config, "brokerMode", "relay");
+            ReflectionTestUtils.setField(config, "relayHost", "127.0.0.1");
+            ReflectionTestUtils.setField(config, "relayPort", brokerPort);
+            ReflectionTestUtils.setField(config, "relayClientLogin", "guest");
+            ReflectionTestUtils.setField(config, "relayClientPasscode", "guest");
+            ReflectionTestUtils.setField(config, "relaySystemLogin", "guest");
+            ReflectionTestUtils.setField(config, "relaySystemPasscode", "guest");
+            ReflectionTestUtils.setField(config, "relayVirtualHost", "");
+
+            ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+            clientOutbound.subscribe(toClients::add);
+            registry = new TestRegistry(clientOutbound);
+            config.configureMessageBroker(registry);
+            relay = registry.relay();
+            relay.start();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(relay.isBrokerAvailable()).isTrue();
+        }
+
+        // A client session connecting and subscribing; returns once the broker has the subscription
+        void subscribe(String sessionId, String destination) throws InterruptedException {
+            relay.handleMessage(frame(StompCommand.CONNECT, sessionId, accessor -> accessor.setAcceptVersion("1.2")));
+            await(sessionId, StompCommand.CONNECTED);
+            relay.handleMessage(frame(StompCommand.SUBSCRIBE, sessionId, accessor -> {
+                accessor.setSubscriptionId("sub-" + sessionId);
+                accessor.setDestination(destination);
+                accessor.setReceipt("subscribed-" + sessionId);
+            }));
+            await(sessionId, StompCommand.RECEIPT);
+        }
+
+        // How the application publishes: converted, through the broker channel
+        void publish(String destination, String payload) {
+            SimpMessagingTemplate template = new SimpMessagingTemplate(registry.brokerChannel);
+            template.setMessageConverter(new StringMessageConverter());
+            template.convertAndSend(destination, payload);
+        }
+
+        String nextMessage(String sessionId) throws InterruptedException {
+            Message<?> message = await(sessionId, StompCommand.MESSAGE);
+            return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+        }
+
+        void stop() {
+            relay.stop();
+        }
+
+        private Message<?> await(String sessionId, StompCommand command) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline) {
+                Message<?> message = toClients.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                    if (command == accessor.getCommand() && sessionId.equals(accessor.getSessionId())) {
+                        return message;
+                    }
+                }
+            }
+            throw new AssertionError("No " + command + " for session " + sessionId);
+        }
+
+        private static Message<byte[]> frame(StompCommand command, String sessionId,
+                                             Consumer<StompHeaderAccessor> headers) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+            accessor.setSessionId(sessionId);
+            headers.accept(accessor);
+            return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+    }
+
+    /** Exposes the handlers the registry would build from the configuration. */
+    private static class TestRegistry extends MessageBrokerRegistry {
+
+        private final SubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+
+        TestRegistry() {
+            this(new ExecutorSubscribableChannel());
+        }
+
+        TestRegistry(SubscribableChannel clientOutboundChannel) {
+            super(new ExecutorSubscribableChannel(), clientOutboundChannel);
+        }
+
+        StompBrokerRelayMessageHandler relay() {
+            return getStompBrokerRelay(brokerChannel);
+        }
+
+        SimpleBrokerMessageHandler simpleBroker() {
+            return getSimpleBroker(brokerChannel);
+        }
+    }
+}
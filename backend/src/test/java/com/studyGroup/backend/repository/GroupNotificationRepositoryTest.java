@@ -0,0 +1,128 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.Course;
+import com.studyGroup.backend.model.Group;
+import com.studyGroup.backend.model.GroupMember;
+import com.studyGroup.backend.model.GroupMemberId;
+import com.studyGroup.backend.model.GroupNotification;
+import com.studyGroup.backend.model.User;
+import com.studyGroup.backend.service.IdBlockAllocator;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Members only see group-scoped notifications created after they joined the group, and only those
+ * resolve as an inbox cursor.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+class GroupNotificationRepositoryTest {
+
+    private static final LocalDateTime JOINED = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Autowired
+    private GroupNotificationRepository groupNotificationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User founder;
+    private User newcomer;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        founder = user("Asha", "asha@example.com");
+        newcomer = user("Ben", "ben@example.com");
+
+        Course course = new Course();
+        course.setCourseId("CS101");
+        course.setCourseName("Algorithms");
+        entityManager.persist(course);
+
+        group = new Group();
+        group.setName("Study group");
+        group.setAssociatedCourse(course);
+        group.setCreatedBy(founder);
+        entityManager.persist(group);
+
+        // Membership from before joined_at existed, and one that started at JOINED
+        member(founder, null);
+        member(newcomer, JOINED);
+    }
+
+    @Test
+    void newcomerSeesOnlyNotificationsSinceJoining() {
+        GroupNotification before = notification(JOINED.minusDays(1));
+        GroupNotification after = notification(JOINED.plusHours(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(after.getId()), ids(groupNotificationRepository.findVisible(newcomer.getId())));
+        assertEquals(List.of(after.getId()),
+                ids(groupNotificationRepository.findInbox(newcomer.getId(), PageRequest.of(0, 10))));
+        assertEquals(1, groupNotificationRepository.countUnread(newcomer.getId()));
+        assertEquals(List.of(after.getId()),
+                groupNotificationRepository.findVisibleIds(List.of(before.getId(), after.getId()), newcomer.getId()));
+
+        // Memberships without joined_at keep seeing everything
+        assertEquals(List.of(after.getId(), before.getId()), ids(groupNotificationRepository.findVisible(founder.getId())));
+        assertEquals(2, groupNotificationRepository.countUnread(founder.getId()));
+    }
+
+    @Test
+    void cursorResolvesOnlyForMembersWhoSeeTheNotification() {
+        GroupNotification after = notification(JOINED.plusHours(1));
+        User outsider = user("Cai", "cai@example.com");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(Optional.of(after.getCreatedAt()),
+                groupNotificationRepository.findVisibleCreatedAt(after.getId(), newcomer.getId()));
+        assertEquals(Optional.empty(), groupNotificationRepository.findVisibleCreatedAt(after.getId(), outsider.getId()));
+    }
+
+    private User user(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void member(User user, LocalDateTime joinedAt) {
+        GroupMember member = new GroupMember(new GroupMemberId(group.getGroupId(), user.getId()), group, user, "member");
+        member.setJoinedAt(joinedAt);
+        entityManager.persist(member);
+    }
+
+    private GroupNotification notification(LocalDateTime createdAt) {
+        GroupNotification notification = new GroupNotification();
+        notification.setGroupId(group.getGroupId());
+        notification.setMessage("Session moved");
+        notification.setType("EVENT");
+        notification.setCreatedAt(createdAt);
+        entityManager.persist(notification);
+        return notification;
+    }
+
+    private static List<Integer> ids(List<GroupNotification> notifications) {
+        return notifications.stream().map(GroupNotification::getId).collect(Collectors.toList());
+    }
+}
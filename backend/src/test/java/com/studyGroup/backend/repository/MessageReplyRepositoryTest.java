@@ -0,0 +1,124 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.Course;
+import com.studyGroup.backend.model.Group;
+import com.studyGroup.backend.model.GroupMessage;
+import com.studyGroup.backend.model.MessageReply;
+import com.studyGroup.backend.model.User;
+import com.studyGroup.backend.service.IdBlockAllocator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The message-delete cascade removes reply links with one indexed DELETE per direction.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+class MessageReplyRepositoryTest {
+
+    @Autowired
+    private MessageReplyRepository messageReplyRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Asha");
+        user.setEmail("asha@example.com");
+        entityManager.persist(user);
+
+        Course course = new Course();
+        course.setCourseId("CS101");
+        course.setCourseName("Algorithms");
+        entityManager.persist(course);
+
+        group = new Group();
+        group.setName("Study group");
+        group.setAssociatedCourse(course);
+        group.setCreatedBy(user);
+        entityManager.persist(group);
+    }
+
+    @Test
+    void deletesOnlyLinksOfTheDeletedMessage() {
+        GroupMessage original = message("original");
+        GroupMessage deleted = message("replies to original, and is replied to");
+        GroupMessage replyA = message("reply A");
+        GroupMessage replyB = message("reply B");
+        GroupMessage unrelated = message("unrelated reply");
+
+        reply(deleted, original);
+        reply(replyA, deleted);
+        reply(replyB, deleted);
+        MessageReply kept = reply(unrelated, original);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        int asReply = messageReplyRepository.deleteByReplyMessageId(deleted.getId());
+        int asOriginal = messageReplyRepository.deleteByOriginalMessageId(deleted.getId());
+
+        assertEquals(1, asReply);
+        assertEquals(2, asOriginal);
+        // Two statements, no entities loaded
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        List<Long> remaining = messageReplyRepository.findAll().stream()
+                .map(MessageReply::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(kept.getId()), remaining);
+    }
+
+    @Test
+    void originalMessageIdIsIndexed() {
+        List<String> indexed = jdbcTemplate.queryForList(
+                "SELECT c.column_name FROM information_schema.index_columns c "
+                        + "WHERE c.table_name = 'message_replies' AND c.index_name = 'idx_message_replies_original_message_id'",
+                String.class);
+        assertTrue(indexed.contains("original_message_id"), "index columns: " + indexed);
+    }
+
+    private GroupMessage message(String content) {
+        GroupMessage message = new GroupMessage();
+        message.setGroup(group);
+        message.setSender(user);
+        message.setContent(content);
+        entityManager.persist(message);
+        return message;
+    }
+
+    private MessageReply reply(GroupMessage reply, GroupMessage original) {
+        MessageReply link = new MessageReply();
+        link.setReplyMessage(reply);
+        link.setOriginalMessage(original);
+        link.setReplier(user);
+        entityManager.persist(link);
+        return link;
+    }
+}
@@ -0,0 +1,68 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.Notification;
+import com.studyGroup.backend.service.IdBlockAllocator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pooled ids let Hibernate send inserts in JDBC batches of hibernate.jdbc.batch_size (50)
+ * instead of one statement per row, as it must with IDENTITY ids.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+class NotificationBatchInsertTest {
+
+    private static final int ROWS = 1000;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void bulkSaveIsSentInBatches() {
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Notification notification = new Notification();
+            notification.setUserId(1 + i % 10);
+            notification.setTitle("Session created");
+            notification.setMessage("Message " + i);
+            notification.setType("Updates");
+            notification.setIsRead(false);
+            notification.setCreatedAt(LocalDateTime.now());
+            notifications.add(notification);
+        }
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        notificationRepository.saveAll(notifications);
+        entityManager.flush();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("[BatchInsert] " + ROWS + " notifications: " + statements
+                + " prepared statements, " + elapsedMs + " ms");
+        assertEquals(ROWS, notificationRepository.count());
+        // 20 insert batches plus the id block reservations (10 blocks of 100); one per row without batching
+        assertTrue(statements < ROWS / 10, "expected batched inserts, got " + statements + " statements");
+    }
+}
@@ -0,0 +1,113 @@
+package com.studyGroup.backend.repository;
+
+import com.studyGroup.backend.model.Notification;
+import com.studyGroup.backend.service.IdBlockAllocator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A user with 50k notifications: mark-all-read and delete-read are one statement each, however
+ * many rows they touch, and the inbox page and unread count don't depend on the inbox size.
+ * The entity-by-entity mark-all-read it replaced is timed alongside for comparison.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+class NotificationBulkMutationBenchmarkTest {
+
+    private static final int ROWS = 50_000;
+    private static final int USER_ID = 7;
+    private static final int OTHER_USER_ID = 8;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 1; i <= ROWS; i++) {
+            rows.add(new Object[] { i, USER_ID, "Message " + i, Timestamp.valueOf(start.plusSeconds(i)) });
+        }
+        rows.add(new Object[] { ROWS + 1, OTHER_USER_ID, "Someone else's", Timestamp.valueOf(start) });
+        jdbcTemplate.batchUpdate("INSERT INTO notifications (id, user_id, title, message, type, is_read, created_at) "
+                + "VALUES (?, ?, 'Session created', ?, 'Updates', FALSE, ?)", rows);
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void bulkMutationsAreSingleStatements() {
+        statistics.clear();
+        long started = System.nanoTime();
+        long unread = notificationRepository.countByUserIdAndIsRead(USER_ID, false);
+        List<Notification> page = notificationRepository.findInbox(USER_ID, false, PageRequest.of(0, 20));
+        report("unread count + first page", started);
+        assertEquals(ROWS, unread);
+        assertEquals(20, page.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        started = System.nanoTime();
+        int marked = notificationRepository.markAllRead(USER_ID);
+        report("markAllRead", started);
+        assertEquals(ROWS, marked);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        statistics.clear();
+        started = System.nanoTime();
+        int deleted = notificationRepository.deleteRead(USER_ID);
+        report("deleteRead", started);
+        assertEquals(ROWS, deleted);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        // Only the user's own rows were touched
+        assertEquals(1, notificationRepository.countByUserIdAndIsRead(OTHER_USER_ID, false));
+    }
+
+    @Test
+    void entityByEntityMarkAllReadForComparison() {
+        statistics.clear();
+        long started = System.nanoTime();
+        List<Notification> notifications = notificationRepository.findByUserIdAndIsReadOrderByCreatedAtDesc(USER_ID, false);
+        notifications.forEach(notification -> notification.setIsRead(true));
+        notificationRepository.saveAll(notifications);
+        entityManager.flush();
+        report("load + saveAll (previous markAllAsRead)", started);
+        assertEquals(ROWS, statistics.getEntityLoadCount());
+        assertTrue(statistics.getEntityUpdateCount() >= ROWS);
+    }
+
+    private void report(String operation, long startedNanos) {
+        System.out.println("[NotificationBench] " + ROWS + " notifications, " + operation + ": "
+                + (System.nanoTime() - startedNanos) / 1_000_000 + " ms, "
+                + statistics.getPrepareStatementCount() + " statement(s)");
+    }
+}
@@ -0,0 +1,96 @@
+package com.studyGroup.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.repository.MessageTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Archived messages deleted later (they have a tombstone) are skipped by every archive read, and
+ * reads page on the seq even where ids from different nodes are out of send order.
+ */
+class ChatArchiveTest {
+
+    private static final Long GROUP_ID = 3L;
+
+    @TempDir
+    Path dir;
+
+    private final MessageTombstoneRepository tombstoneRepository = mock(MessageTombstoneRepository.class);
+    private ChatArchive archive;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        archive = new ChatArchive(new ObjectMapper().registerModule(new JavaTimeModule()), tombstoneRepository);
+        ReflectionTestUtils.setField(archive, "archiveDir", dir.toString());
+        ReflectionTestUtils.setField(archive, "segmentMaxBytes", 1L << 20);
+        archive.open();
+        archive.append(GROUP_ID, messages(1, 5));
+        archive.append(GROUP_ID, messages(6, 10));
+        when(tombstoneRepository.findDeletedMessageIds(eq(GROUP_ID), anyLong())).thenReturn(List.of(4L, 7L));
+    }
+
+    @Test
+    void readsSkipDeletedMessages() {
+        assertEquals(List.of(10L, 9L, 8L, 6L), ids(archive.readBefore(GROUP_ID, null, 4)));
+        assertEquals(List.of(3L, 5L, 6L, 8L), ids(archive.readAfter(GROUP_ID, 2L, 4)));
+        assertEquals(List.of(5L), ids(archive.readByIds(GROUP_ID, List.of(4L, 5L, 7L))));
+
+        List<ChatMessageDTO> all = new ArrayList<>();
+        archive.forEach(GROUP_ID, all::add);
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 8L, 9L, 10L), ids(all));
+    }
+
+    @Test
+    void crashRecoveryStillSeesTheWholeLastBlock() {
+        assertEquals(List.of(6L, 7L, 8L, 9L, 10L), archive.lastBlockIds(GROUP_ID));
+    }
+
+    @Test
+    void pagesBySeqWhenIdsAreOutOfOrder() {
+        // Seqs 11-13 sent through two nodes: the first node's id block is ahead of the second's
+        archive.append(GROUP_ID, List.of(message(11, 2001), message(12, 1001), message(13, 2002)));
+
+        assertEquals(List.of(2002L, 1001L, 2001L, 10L), ids(archive.readBefore(GROUP_ID, null, 4)));
+        assertEquals(List.of(1001L, 2002L), ids(archive.readAfter(GROUP_ID, 11L, 4)));
+        assertEquals(List.of(1001L), ids(archive.readByIds(GROUP_ID, List.of(1001L))));
+        assertEquals(13L, archive.maxArchivedSeq(GROUP_ID));
+    }
+
+    private static List<ChatMessageDTO> messages(long from, long to) {
+        List<ChatMessageDTO> messages = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            messages.add(message(id, id));
+        }
+        return messages;
+    }
+
+    private static ChatMessageDTO message(long seq, long id) {
+        ChatMessageDTO message = new ChatMessageDTO();
+        message.setGroupId(GROUP_ID);
+        message.setMessageId(id);
+        message.setSeq(seq);
+        message.setSenderId(1);
+        message.setContent("message " + id);
+        return message;
+    }
+
+    private static List<Long> ids(List<ChatMessageDTO> messages) {
+        return messages.stream().map(ChatMessageDTO::getMessageId).collect(Collectors.toList());
+    }
+}
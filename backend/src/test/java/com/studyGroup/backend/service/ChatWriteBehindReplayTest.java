@@ -0,0 +1,173 @@
+package com.studyGroup.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.studyGroup.backend.dto.ChatMessageDTO;
+import com.studyGroup.backend.model.Course;
+import com.studyGroup.backend.model.Group;
+import com.studyGroup.backend.model.MessageTombstone;
+import com.studyGroup.backend.model.User;
+import com.studyGroup.backend.repository.CourseRepository;
+import com.studyGroup.backend.repository.GroupMessageRepository;
+import com.studyGroup.backend.repository.GroupRepository;
+import com.studyGroup.backend.repository.GroupSequenceRepository;
+import com.studyGroup.backend.repository.MessageTombstoneRepository;
+import com.studyGroup.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * A message that was flushed and then deleted must not come back when a crash leaves its
+ * (still unsealed) log segment behind; messages that never reached the table still do.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+// The pipeline writes on its own threads, so test data has to be committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatWriteBehindReplayTest {
+
+    @TempDir
+    Path logDir;
+
+    @TempDir
+    Path crashDir;
+
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    private GroupSequenceRepository groupSequenceRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private GroupMessageRepository messageRepository;
+
+    @Autowired
+    private MessageTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Asha");
+        user.setEmail("asha@example.com");
+        user = userRepository.save(user);
+
+        Course course = new Course();
+        course.setCourseId("CS102");
+        course.setCourseName("Data structures");
+        courseRepository.save(course);
+
+        group = new Group();
+        group.setName("Study group");
+        group.setAssociatedCourse(course);
+        group.setCreatedBy(user);
+        group = groupRepository.save(group);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tombstoneRepository.deleteAll();
+        messageRepository.deleteAll();
+        groupSequenceRepository.deleteAll();
+        groupRepository.deleteAll();
+        courseRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void replaySkipsMessagesDeletedAfterTheirFlush() throws Exception {
+        ChatWriteBehindService service = newService(logDir);
+        service.start();
+        Long deletedId = send(service, "deleted after the flush");
+        Long lostId = send(service, "flushed but lost");
+        service.awaitPersisted(deletedId);
+        service.awaitPersisted(lostId);
+        assertTrue(messageRepository.existsById(deletedId));
+
+        // What GroupMessageService.deleteMessage does for a live message
+        messageRepository.deleteById(deletedId);
+        tombstoneRepository.save(new MessageTombstone(group.getGroupId(), deletedId, 1L));
+        // Stands in for a row that never made it, e.g. a flush that was rolled back
+        messageRepository.deleteById(lostId);
+
+        // Crash: the segment is not sealed yet, so it is still on disk
+        try (Stream<Path> segments = Files.list(logDir)) {
+            for (Path segment : segments.toList()) {
+                Files.copy(segment, crashDir.resolve(segment.getFileName()));
+            }
+        }
+        service.stop();
+
+        ChatWriteBehindService restarted = newService(crashDir);
+        restarted.start();
+        try {
+            assertFalse(messageRepository.existsById(deletedId), "deleted message was replayed");
+            assertTrue(messageRepository.existsById(lostId), "unsaved message was not replayed");
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    private Long send(ChatWriteBehindService service, String content) throws Exception {
+        ChatMessageDTO message = new ChatMessageDTO();
+        message.setGroupId(group.getGroupId());
+        message.setSenderId(user.getId());
+        message.setContent(content);
+        return service.submit(message).get(5, TimeUnit.SECONDS).getMessageId();
+    }
+
+    private ChatWriteBehindService newService(Path dir) {
+        ChatDedupWindow dedupWindow = new ChatDedupWindow();
+        ReflectionTestUtils.setField(dedupWindow, "windowSize", 16);
+        ReflectionTestUtils.setField(dedupWindow, "ttlSeconds", 60L);
+        GroupSequenceAllocator sequences = new GroupSequenceAllocator(groupSequenceRepository, jdbcTemplate, mock(ChatArchive.class), transactionManager);
+        ChatWriteBehindService service = new ChatWriteBehindService(idBlockAllocator, dedupWindow, sequences,
+                groupRepository, userRepository, messageRepository, jdbcTemplate,
+                new TransactionTemplate(transactionManager), new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(service, "logDir", dir.toString());
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "segmentMaxBytes", 1L << 20);
+        return service;
+    }
+}
@@ -0,0 +1,172 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.config.WebSocketConfig;
+import com.studyGroup.backend.model.Course;
+import com.studyGroup.backend.model.Group;
+import com.studyGroup.backend.model.GroupMessage;
+import com.studyGroup.backend.model.MessageTombstone;
+import com.studyGroup.backend.model.Poll;
+import com.studyGroup.backend.model.User;
+import com.studyGroup.backend.repository.GroupSequenceRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deletions and vote flushes are numbered on the change cursor, so the chat seq stays gap-free,
+ * and a fresh node picks the change cursor up from the tombstones and polls already written.
+ * Messages from before seqs existed are numbered below the counter, in id order, and archived
+ * messages count towards the seed.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+// Relay mode reserves in its own transactions, which only see committed rows
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GroupSequenceAllocatorTest {
+
+    @Autowired
+    private GroupSequenceRepository groupSequenceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> persistGroup());
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("group_messages", "group_message_tombstones", "polls", "group_sequences", "study_group", "course", "`user`")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    private User user;
+
+    private void persistGroup() {
+        user = new User();
+        user.setName("Asha");
+        user.setEmail("asha@example.com");
+        entityManager.persist(user);
+
+        Course course = new Course();
+        course.setCourseId("CS103");
+        course.setCourseName("Databases");
+        entityManager.persist(course);
+
+        group = new Group();
+        group.setName("Study group");
+        group.setAssociatedCourse(course);
+        group.setCreatedBy(user);
+        entityManager.persist(group);
+
+        Poll poll = new Poll();
+        poll.setGroup(group);
+        poll.setCreator(user);
+        poll.setQuestion("Which day?");
+        poll.setVoteMarker(7L);
+        entityManager.persist(poll);
+        entityManager.persist(new MessageTombstone(group.getGroupId(), 1L, 4L));
+    }
+
+    @Test
+    void changesLeaveNoGapsInTheChatSeq() {
+        GroupSequenceAllocator allocator = allocator("simple");
+        Long groupId = group.getGroupId();
+
+        assertEquals(1, allocator.next(groupId));
+        assertEquals(8, allocator.nextChange(groupId));
+        assertEquals(9, allocator.nextChange(groupId));
+        assertEquals(2, allocator.next(groupId));
+        assertEquals(9, allocator.latestChange(groupId));
+        assertEquals(2, allocator.latest(List.of(groupId)).get(groupId));
+    }
+
+    @Test
+    void relayModeKeepsBothCountersInTheSequenceRow() {
+        GroupSequenceAllocator allocator = allocator(WebSocketConfig.BROKER_MODE_RELAY);
+        Long groupId = group.getGroupId();
+
+        assertEquals(1, allocator.next(groupId));
+        assertEquals(8, allocator.nextChange(groupId));
+        assertEquals(2, allocator.next(groupId));
+        assertEquals(8, allocator.latestChange(groupId));
+        assertEquals(8L, groupSequenceRepository.findById(groupId).orElseThrow().getLastChange());
+    }
+
+    @Test
+    void numbersOlderMessagesBelowTheCounter() {
+        List<Long> ids = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> persisted = new ArrayList<>();
+            for (String content : List.of("first", "second", "third")) {
+                GroupMessage message = new GroupMessage();
+                message.setGroup(group);
+                message.setSender(user);
+                message.setContent(content);
+                entityManager.persist(message);
+                persisted.add(message.getId());
+            }
+            return persisted;
+        });
+
+        GroupSequenceAllocator allocator = allocator("simple");
+        allocator.numberLegacyMessages();
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i - 2L, jdbcTemplate.queryForObject(
+                    "SELECT seq FROM group_messages WHERE id = ?", Long.class, ids.get(i)));
+        }
+        assertEquals(1, allocator.next(group.getGroupId()));
+    }
+
+    @Test
+    void seedsPastArchivedMessages() {
+        ChatArchive chatArchive = mock(ChatArchive.class);
+        when(chatArchive.maxArchivedSeq(group.getGroupId())).thenReturn(40L);
+        GroupSequenceAllocator allocator = allocator("simple", chatArchive);
+
+        assertEquals(40, allocator.latest(List.of(group.getGroupId())).get(group.getGroupId()));
+        assertEquals(41, allocator.next(group.getGroupId()));
+    }
+
+    private GroupSequenceAllocator allocator(String brokerMode) {
+        return allocator(brokerMode, mock(ChatArchive.class));
+    }
+
+    private GroupSequenceAllocator allocator(String brokerMode, ChatArchive chatArchive) {
+        GroupSequenceAllocator allocator = new GroupSequenceAllocator(groupSequenceRepository, jdbcTemplate, chatArchive,
+                transactionManager);
+        ReflectionTestUtils.setField(allocator, "brokerMode", brokerMode);
+        return allocator;
+    }
+}
@@ -0,0 +1,116 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.repository.PollOptionRepository;
+import com.studyGroup.backend.repository.PollRepository;
+import com.studyGroup.backend.repository.PollVoteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Every flush commits vote rows and count deltas that match: a vote racing the flush goes out
+ * whole in this flush or the next, never its row in one and its count in the other.
+ */
+class PollVoteCounterTest {
+
+    private static final Long POLL_ID = 1L;
+    private static final List<Long> OPTION_IDS = List.of(10L, 11L);
+
+    // What the flushes have written so far, as the database would hold it
+    private final Map<Integer, Long> voteRows = new HashMap<>();
+    private final Map<Long, Long> voteCounts = new HashMap<>();
+
+    @Test
+    void flushesKeepVoteRowsAndCountsTogether() throws Exception {
+        PollVoteCounter counter = newCounter();
+        AtomicBoolean voting = new AtomicBoolean(true);
+        ExecutorService voters = Executors.newFixedThreadPool(4);
+        List<Future<?>> running = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            running.add(voters.submit(() -> {
+                for (int i = 0; voting.get(); i++) {
+                    int userId = thread * 1_000_000 + i % 500;
+                    counter.vote(POLL_ID, OPTION_IDS.get(i % 2), userId);
+                }
+            }));
+        }
+        try {
+            for (int flushes = 0; flushes < 2_000; flushes++) {
+                counter.flush();
+                assertCountsMatchRows();
+            }
+        } finally {
+            voting.set(false);
+            for (Future<?> voter : running) {
+                voter.get();
+            }
+            voters.shutdown();
+        }
+        counter.flush();
+        assertCountsMatchRows();
+    }
+
+    private void assertCountsMatchRows() {
+        for (Long optionId : OPTION_IDS) {
+            long rows = voteRows.values().stream().filter(optionId::equals).count();
+            assertEquals(rows, voteCounts.getOrDefault(optionId, 0L), "count of option " + optionId);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private PollVoteCounter newCounter() {
+        PollVoteRepository pollVoteRepository = mock(PollVoteRepository.class);
+        when(pollVoteRepository.findVoters(anyLong())).thenReturn(List.of());
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            for (Object[] row : (List<Object[]>) invocation.getArgument(1)) {
+                if (sql.contains("poll_votes")) {
+                    voteRows.put((Integer) row[1], (Long) row[2]);
+                } else {
+                    voteCounts.merge((Long) row[1], (Long) row[0], Long::sum);
+                }
+            }
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        PollOptionRepository pollOptionRepository = mock(PollOptionRepository.class);
+        for (Long optionId : OPTION_IDS) {
+            PollOptionRepository.OptionTally tally = mock(PollOptionRepository.OptionTally.class);
+            when(tally.getId()).thenReturn(optionId);
+            when(tally.getPollId()).thenReturn(POLL_ID);
+            when(tally.getGroupId()).thenReturn(2L);
+            when(tally.getOptionText()).thenReturn("option " + optionId);
+            when(tally.getVoteCount()).thenReturn(0L);
+            when(pollOptionRepository.findTally(optionId)).thenReturn(Optional.of(tally));
+        }
+
+        PollVoteCounter counter = new PollVoteCounter(pollOptionRepository, mock(PollRepository.class),
+                mock(GroupSequenceAllocator.class), new PollVoterIndex(pollVoteRepository, jdbcTemplate), jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(counter, "brokerMode", "simple");
+        return counter;
+    }
+}
@@ -0,0 +1,80 @@
+package com.studyGroup.backend.service;
+
+import com.studyGroup.backend.repository.GroupMemberRepository;
+import com.studyGroup.backend.repository.GroupSequenceRepository;
+import com.studyGroup.backend.repository.ReadPointerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unread counts follow messages only: deleting a message or flushing poll votes doesn't add to them.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(locations = "classpath:jpa-test.properties")
+@Import(IdBlockAllocator.class)
+class ReadPointerServiceTest {
+
+    private static final Integer USER_ID = 1;
+    private static final Long GROUP_ID = 5L;
+
+    @Autowired
+    private ReadPointerRepository readPointerRepository;
+
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Autowired
+    private GroupSequenceRepository groupSequenceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GroupSequenceAllocator allocator;
+    private ReadPointerService readPointers;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new GroupSequenceAllocator(groupSequenceRepository, jdbcTemplate, mock(ChatArchive.class), transactionManager);
+        readPointers = new ReadPointerService(readPointerRepository, groupMemberRepository, allocator, jdbcTemplate, 60);
+    }
+
+    @Test
+    void deletionsAndVotesAreNotCountedAsUnread() {
+        assertEquals(0L, unread());
+
+        allocator.next(GROUP_ID);
+        allocator.next(GROUP_ID);
+        allocator.next(GROUP_ID);
+        assertEquals(3L, unread());
+
+        // A deletion and two vote flushes
+        allocator.nextChange(GROUP_ID);
+        allocator.nextChange(GROUP_ID);
+        allocator.nextChange(GROUP_ID);
+        assertEquals(3L, unread());
+
+        readPointers.markRead(USER_ID, GROUP_ID, 3L);
+        allocator.nextChange(GROUP_ID);
+        assertEquals(0L, unread());
+    }
+
+    private long unread() {
+        return readPointers.unreadCounts(USER_ID, List.of(GROUP_ID)).get(GROUP_ID);
+    }
+}